@@ -0,0 +1,160 @@
+package io.jenkins.plugins.projectenv;
+
+import hudson.model.Computer;
+import io.jenkins.plugins.projectenv.admission.InstallPermit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs the setup of a step as a graph of asynchronous stages. The stages run on the remoting thread pool, since most
+ * of them wait for round trips to the agent, which must not block the limited pool of the step executions. The
+ * stages can be {@link #cancel() cancelled}, which interrupts the running ones (and thereby their remote calls,
+ * downloads and processes), gives up waiting for permits and fails the pending ones.
+ */
+final class SetupStages {
+
+    private enum State {
+        RUNNING,
+        COMPLETED,
+        CANCELLED
+    }
+
+    private final Set<Thread> runningThreads = new HashSet<>();
+    private final List<CompletableFuture<?>> awaitedFutures = new ArrayList<>();
+    private State state = State.RUNNING;
+
+    @FunctionalInterface
+    interface Stage<T, R> {
+
+        R run(T input) throws Exception;
+
+    }
+
+    <T> CompletableFuture<T> supply(Callable<T> stage) {
+        return CompletableFuture.supplyAsync(() -> call(stage), Computer.threadPoolForRemoting);
+    }
+
+    <T, R> CompletableFuture<R> then(CompletableFuture<T> dependency, Stage<T, R> stage) {
+        return dependency.thenApplyAsync(input -> call(() -> stage.run(input)), Computer.threadPoolForRemoting);
+    }
+
+    /**
+     * Runs the given stage as soon as the given permit has been granted, without occupying a thread while waiting for
+     * it. Waiting is given up as soon as the setup gets cancelled, and the permit is released once the stage completed
+     * or has been skipped.
+     */
+    <R> CompletableFuture<R> withPermit(CompletableFuture<InstallPermit> permit, Callable<R> stage) {
+        await(permit);
+        CompletableFuture<R> result = then(permit, ignored -> stage.call());
+        result.whenComplete((ignored, failure) -> permit.thenAccept(InstallPermit::close));
+
+        return result;
+    }
+
+    /**
+     * @return the results of the given stages in the given order, failing as soon as the first of them fails instead
+     * of waiting for the others
+     */
+    static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> stages) {
+        CompletableFuture<List<T>> results = new CompletableFuture<>();
+        for (CompletableFuture<T> stage : stages) {
+            stage.exceptionally(failure -> {
+                results.completeExceptionally(failure);
+                return null;
+            });
+        }
+        CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0]))
+                .thenRun(() -> results.complete(stages.stream().map(CompletableFuture::join).toList()));
+
+        return results;
+    }
+
+    /**
+     * Marks the setup as completed, after which it cannot be cancelled anymore.
+     *
+     * @return whether the setup has been completed, which is not the case if it has been cancelled before
+     */
+    synchronized boolean complete() {
+        if (state != State.RUNNING) {
+            return false;
+        }
+
+        state = State.COMPLETED;
+        return true;
+    }
+
+    /**
+     * @return whether the setup has been cancelled, which is not the case if it has been completed or cancelled before
+     */
+    synchronized boolean cancel() {
+        if (state != State.RUNNING) {
+            return false;
+        }
+
+        state = State.CANCELLED;
+        runningThreads.forEach(Thread::interrupt);
+        awaitedFutures.forEach(future -> future.cancel(false));
+        return true;
+    }
+
+    synchronized boolean isCancelled() {
+        return state == State.CANCELLED;
+    }
+
+    /**
+     * @return the exception which caused the failure of a stage
+     */
+    static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        return cause;
+    }
+
+    /**
+     * Cancels the given future, which is completed by someone else than the stages, together with the stages.
+     */
+    private synchronized void await(CompletableFuture<?> future) {
+        if (state == State.CANCELLED) {
+            future.cancel(false);
+        } else {
+            awaitedFutures.add(future);
+        }
+    }
+
+    private <T> T call(Callable<T> stage) {
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            if (state == State.CANCELLED) {
+                throw new CompletionException(new InterruptedException("Project-Env setup has been cancelled"));
+            }
+            runningThreads.add(thread);
+        }
+
+        try {
+            return stage.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            synchronized (this) {
+                runningThreads.remove(thread);
+                if (state == State.CANCELLED) {
+                    // the pooled thread must not carry the interrupt over to its next task
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package io.jenkins.plugins.projectenv;
 
+import hudson.AbortException;
 import hudson.Extension;
+import io.jenkins.plugins.projectenv.cli.CliDownloadStrategy;
 import org.jenkinsci.plugins.workflow.steps.Step;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
@@ -9,14 +11,25 @@ import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 public class WithProjectEnvStep extends Step {
 
+    private static final String DEFAULT_CONFIG_FILE = "project-env.toml";
+
     private String cliVersion;
     private boolean cliDebug;
-    private String configFile = "project-env.toml";
+    private String configFile;
+    private List<String> configFiles;
     private boolean skipCleanup;
+    private CliDownloadStrategy cliDownloadStrategy;
+    private String cliMirrorUrlTemplate;
+    private boolean forceRefresh;
+    private boolean sharedTools;
+    private boolean toolsSnapshot;
+    private List<String> tools;
+    private int timeout;
 
     @DataBoundConstructor
     public WithProjectEnvStep() {
@@ -38,14 +51,63 @@ public class WithProjectEnvStep extends Step {
         this.configFile = configFile;
     }
 
+    /**
+     * Prepares several configuration files at once, which cannot be combined with {@link #setConfigFile(String)}.
+     */
+    @DataBoundSetter
+    public void setConfigFiles(List<String> configFiles) {
+        this.configFiles = configFiles != null && !configFiles.isEmpty() ? List.copyOf(configFiles) : null;
+    }
+
     @DataBoundSetter
     public void setSkipCleanup(boolean skipCleanup) {
         this.skipCleanup = skipCleanup;
     }
 
+    @DataBoundSetter
+    public void setCliDownloadStrategy(CliDownloadStrategy cliDownloadStrategy) {
+        this.cliDownloadStrategy = cliDownloadStrategy;
+    }
+
+    @DataBoundSetter
+    public void setCliMirrorUrlTemplate(String cliMirrorUrlTemplate) {
+        this.cliMirrorUrlTemplate = cliMirrorUrlTemplate;
+    }
+
+    @DataBoundSetter
+    public void setForceRefresh(boolean forceRefresh) {
+        this.forceRefresh = forceRefresh;
+    }
+
+    @DataBoundSetter
+    public void setSharedTools(boolean sharedTools) {
+        this.sharedTools = sharedTools;
+    }
+
+    @DataBoundSetter
+    public void setToolsSnapshot(boolean toolsSnapshot) {
+        this.toolsSnapshot = toolsSnapshot;
+    }
+
+    @DataBoundSetter
+    public void setTools(List<String> tools) {
+        this.tools = tools != null && !tools.isEmpty() ? List.copyOf(tools) : null;
+    }
+
+    @DataBoundSetter
+    public void setTimeout(int timeout) {
+        this.timeout = Math.max(timeout, 0);
+    }
+
     @Override
-    public StepExecution start(StepContext stepContext) {
-            return new WithProjectEnvStepExecution(stepContext, cliDebug, configFile, cliVersion, skipCleanup);
+    public StepExecution start(StepContext stepContext) throws AbortException {
+        if (configFile != null && configFiles != null) {
+            throw new AbortException("withProjectEnv accepts either configFile or configFiles, but not both");
+        }
+
+        List<String> effectiveConfigFiles = configFiles != null ? configFiles : List.of(configFile != null ? configFile : DEFAULT_CONFIG_FILE);
+        return new WithProjectEnvStepExecution(stepContext, cliDebug, effectiveConfigFiles, cliVersion, skipCleanup, cliDownloadStrategy, cliMirrorUrlTemplate, forceRefresh,
+                sharedTools, toolsSnapshot, tools, timeout);
     }
 
     @Extension
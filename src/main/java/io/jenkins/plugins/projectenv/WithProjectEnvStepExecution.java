@@ -1,79 +1,139 @@
 package io.jenkins.plugins.projectenv;
 
+import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.FilePath;
-import hudson.Util;
+import hudson.Launcher;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.projectenv.admission.InstallAdmission;
+import io.jenkins.plugins.projectenv.admission.InstallPermit;
+import io.jenkins.plugins.projectenv.agent.AgentFacts;
+import io.jenkins.plugins.projectenv.agent.AgentFactsCache;
 import io.jenkins.plugins.projectenv.agent.AgentInfo;
 import io.jenkins.plugins.projectenv.agent.AgentInfoCallable;
-import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import io.jenkins.plugins.projectenv.agent.CliPathLookup;
+import io.jenkins.plugins.projectenv.cli.CliDownloadStrategy;
+import io.jenkins.plugins.projectenv.cli.CliInstallationCache;
+import io.jenkins.plugins.projectenv.cli.CliInstallationReleaseCallback;
+import io.jenkins.plugins.projectenv.cli.CliInstaller;
+import io.jenkins.plugins.projectenv.cli.CliInstallers;
+import io.jenkins.plugins.projectenv.cli.CliVersionResolver;
+import io.jenkins.plugins.projectenv.config.ProjectEnvGlobalConfiguration;
 import io.jenkins.plugins.projectenv.context.StepContextHelper;
-import io.jenkins.plugins.projectenv.proc.ProcHelper;
-import io.jenkins.plugins.projectenv.proc.ProcResult;
-import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
-import io.jenkins.plugins.projectenv.toolinfo.ToolInfoParser;
-import org.apache.commons.io.FilenameUtils;
+import io.jenkins.plugins.projectenv.env.ProjectEnvDelta;
+import io.jenkins.plugins.projectenv.env.ProjectEnvExpander;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import io.jenkins.plugins.projectenv.memo.EnvironmentDigestCallable;
+import io.jenkins.plugins.projectenv.memo.MemoizedEnvironment;
+import io.jenkins.plugins.projectenv.memo.RunMemo;
+import io.jenkins.plugins.projectenv.memo.RunMemoCache;
+import io.jenkins.plugins.projectenv.metrics.ProjectEnvMetrics;
+import io.jenkins.plugins.projectenv.metrics.ProjectEnvSetupAction;
+import io.jenkins.plugins.projectenv.metrics.SetupCounter;
+import io.jenkins.plugins.projectenv.metrics.SetupPhase;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+import io.jenkins.plugins.projectenv.prepare.AgentEnvironmentPreparer;
+import io.jenkins.plugins.projectenv.prepare.EnvironmentPreparer;
+import io.jenkins.plugins.projectenv.prepare.PrepareRequest;
+import io.jenkins.plugins.projectenv.prepare.PreparedEnvironment;
+import io.jenkins.plugins.projectenv.snapshot.ToolsSnapshotStore;
+import io.jenkins.plugins.projectenv.snapshot.ToolsSnapshotTarget;
+import io.jenkins.plugins.projectenv.snapshot.ToolsSnapshots;
+import io.jenkins.plugins.projectenv.tools.SharedToolsStore;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.Header;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
 import org.jenkinsci.plugins.workflow.steps.EnvironmentExpander;
 import org.jenkinsci.plugins.workflow.steps.GeneralNonBlockingStepExecution;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
-import java.io.IOException;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
-import java.text.MessageFormat;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.PrintStream;
+import java.io.Serial;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class WithProjectEnvStepExecution extends GeneralNonBlockingStepExecution {
 
-    private static final Pattern LATEST_CLI_VERSION_PATTERN = Pattern.compile(".+/v(.+)$");
+    /**
+     * The serial version of the executions persisted by earlier versions, which only supported a single configuration
+     * file, so that builds running across the upgrade can still be resumed.
+     */
+    private static final long serialVersionUID = 1977173427363009071L;
 
-    private static final String PROJECT_ENV_CLI_DOWNLOAD_PATTERN = "https://github.com/Project-Env/project-env-core/releases/download/v{0}/cli-{0}-{1}-{2}.{3}";
+    private static final Logger LOGGER = Logger.getLogger(WithProjectEnvStepExecution.class.getName());
 
-    private static final String CLI_ARCHIVE_EXTENSION_TAR_GZ = "tar.gz";
-    private static final String CLI_ARCHIVE_EXTENSION_ZIP = "zip";
-
-    private static final String CLI_EXECUTABLE_FILE_NAME = "project-env-cli";
-
-    private static final String CLI_EXECUTABLE_FILE_EXTENSION_WINDOWS = ".exe";
-    private static final String CLI_EXECUTABLE_FILE_EXTENSION_OTHERS = StringUtils.EMPTY;
-
-    private static final String CLI_TARGET_OS_WINDOWS = "windows";
-    private static final String CLI_TARGET_OS_MACOS = "macos";
-    private static final String CLI_TARGET_OS_LINUX = "linux";
-
-    private static final String CLI_TARGET_ARCH_AMD_64 = "amd64";
-    private static final String CLI_TARGET_ARCH_AARCH64 = "aarch64";
-
-    private static final String PATH_VAR_PREFIX = "PATH+";
-
-    private static final String PROJECT_ENV_MAVEN_TOOL_NAME = "maven";
-    private static final String PROJECT_ENV_MAVEN_USER_SETTINGS_FILE = "userSettingsFile";
+    /**
+     * Whether the environment should be prepared by the agent itself within a single round trip. If disabled, the
+     * controller prepares the environment by operating on the agent remotely.
+     */
+    @Restricted(NoExternalUse.class)
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console and tests")
+    public static boolean AGENT_SIDE_PREPARATION = SystemProperties.getBoolean(WithProjectEnvStepExecution.class.getName() + ".agentSidePreparation", true);
 
     private final String fixedCliVersion;
     private final boolean cliDebug;
-    private final String configFile;
+    private List<String> configFiles;
+    /**
+     * The only configuration file of executions persisted by earlier versions, see {@link #readResolve()}.
+     */
+    @Deprecated
+    private String configFile;
     private final boolean skipCleanup;
-
-    public WithProjectEnvStepExecution(StepContext stepContext, boolean cliDebug, String configFile, String fixedCliVersion, boolean skipCleanup) {
+    private final CliDownloadStrategy cliDownloadStrategy;
+    private final String cliMirrorUrlTemplate;
+    private final boolean forceRefresh;
+    private final boolean sharedTools;
+    private final boolean toolsSnapshot;
+    private final List<String> tools;
+    private final int timeout;
+    private transient volatile SetupStages setupStages;
+    private transient volatile ScheduledFuture<?> setupTimeout;
+
+    public WithProjectEnvStepExecution(StepContext stepContext, boolean cliDebug, List<String> configFiles, String fixedCliVersion, boolean skipCleanup,
+                                       CliDownloadStrategy cliDownloadStrategy, String cliMirrorUrlTemplate, boolean forceRefresh, boolean sharedTools,
+                                       boolean toolsSnapshot, List<String> tools, int timeout) {
         super(stepContext);
 
         this.fixedCliVersion = fixedCliVersion;
         this.cliDebug = cliDebug;
-        this.configFile = configFile;
+        this.configFiles = configFiles;
         this.skipCleanup = skipCleanup;
+        this.cliDownloadStrategy = cliDownloadStrategy;
+        this.cliMirrorUrlTemplate = cliMirrorUrlTemplate;
+        this.forceRefresh = forceRefresh;
+        this.sharedTools = sharedTools;
+        this.toolsSnapshot = toolsSnapshot;
+        this.tools = tools;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Migrates executions persisted by earlier versions, whose body might still be running after the upgrade.
+     */
+    @Serial
+    private Object readResolve() {
+        if (configFiles == null) {
+            configFiles = List.of(configFile);
+            configFile = null;
+        }
+
+        return this;
     }
 
     @Override
@@ -82,232 +142,446 @@ public class WithProjectEnvStepExecution extends GeneralNonBlockingStepExecution
         return false;
     }
 
+    @Override
+    public void stop(Throwable cause) throws Exception {
+        // interrupts the remote calls, downloads and CLI runs of the setup, which release their locks and partial files
+        SetupStages stages = setupStages;
+        if (stages != null) {
+            stages.cancel();
+        }
+        cancelSetupTimeout();
+
+        super.stop(cause);
+    }
+
     private void execute() throws Exception {
-        AgentInfo agentInfo = getAgentInfo();
+        String stepId = UUID.randomUUID().toString();
+        SetupReport setupReport = new SetupReport();
+        long start = System.nanoTime();
+
+        SetupStages stages = new SetupStages();
+        setupStages = stages;
+        // the configurations are prepared concurrently and merged in the order they are listed
+        List<CompletableFuture<PreparedEnvironment>> environments = new ArrayList<>();
+        for (String configFile : configFiles) {
+            environments.add(prepareEnvironment(configFile, setupReport));
+        }
+        if (timeout > 0) {
+            setupTimeout = Timer.get().schedule(() -> abortSetup(stages), timeout, TimeUnit.SECONDS);
+        }
+
+        // the step thread is released here, the remaining setup and the body invocation are done by the stages
+        AtomicBoolean recorded = new AtomicBoolean();
+        stages.then(SetupStages.allOf(environments), preparedEnvironments -> {
+            cancelSetupTimeout();
+            if (!stages.complete()) {
+                return null;
+            }
+
+            ProjectEnvDelta projectEnvDelta = createProjectEnvDelta(preparedEnvironments);
+            setupReport.setElapsedDuration(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            recorded.set(true);
+            recordSetupReport(stepId, setupReport, null);
+
+            // the CLI installations on the PATH of the body must not be evicted by other builds while the body runs
+            List<String> cliInstallationDirectories = getCliInstallationDirectories(preparedEnvironments);
+            retainCliInstallations(stepId, cliInstallationDirectories);
+            invokeBodyWithEnvDelta(projectEnvDelta, new CliInstallationReleaseCallback(stepId, cliInstallationDirectories));
+            return null;
+        }).whenComplete((ignored, failure) -> {
+            // failed and cancelled setups are recorded as well, since they are the ones worth looking into
+            if (recorded.compareAndSet(false, true)) {
+                setupReport.setElapsedDuration(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                recordIncompleteSetupReport(stepId, setupReport, stages.isCancelled() ? "aborted" : "failed");
+            }
 
-        FilePath temporaryDirectory = createTemporaryDirectory();
-        EnvVars projectEnvVars = new EnvVars();
+            // a cancelled setup has already been reported by whoever cancelled it, otherwise the preparations of
+            // the other configurations are not needed anymore
+            if (failure != null && (stages.cancel() || !stages.isCancelled())) {
+                cancelSetupTimeout();
+                getContext().onFailure(SetupStages.unwrap(failure));
+            }
+        });
+    }
 
-        String executable = resolveProjectEnvCliExecutableFromPath(agentInfo);
-        if (executable == null) {
-            FilePath projectEnvCliArchive = downloadProjectEnvCliArchive(agentInfo, temporaryDirectory);
-            extractProjectEnvCliArchive(projectEnvCliArchive, temporaryDirectory);
+    private ProjectEnvDelta createProjectEnvDelta(List<PreparedEnvironment> preparedEnvironments) throws Exception {
+        Map<String, ProjectEnvDelta> projectEnvDeltas = new LinkedHashMap<>();
+        for (int i = 0; i < configFiles.size(); i++) {
+            PreparedEnvironment preparedEnvironment = preparedEnvironments.get(i);
+            projectEnvDeltas.put(configFiles.get(i), ProjectEnvDelta.create(preparedEnvironment.cliInstallationDirectory(), preparedEnvironment.toolInfos()));
+        }
+        if (projectEnvDeltas.size() == 1) {
+            return projectEnvDeltas.values().iterator().next();
+        }
 
-            executable = resolveProjectEnvCliExecutable(agentInfo, temporaryDirectory);
-            projectEnvVars.put(PATH_VAR_PREFIX + "PROJECT_ENV_CLI", temporaryDirectory.getRemote());
+        List<String> conflicts = new ArrayList<>();
+        ProjectEnvDelta projectEnvDelta = ProjectEnvDelta.merge(projectEnvDeltas, conflicts);
+        PrintStream logger = StepContextHelper.getTaskListener(getContext()).getLogger();
+        for (String conflict : conflicts) {
+            logger.println("Project-Env configurations conflict: " + conflict);
         }
-        Map<String, List<ToolInfo>> allToolInfos = executeProjectEnvCli(executable);
-        processToolInfos(projectEnvVars, allToolInfos, agentInfo);
 
-        BodyExecutionCallback callback = createTempDirectoryCleanupCallback(temporaryDirectory);
-        invokeBodyWithEnvVarsAndCallback(projectEnvVars, callback);
+        return projectEnvDelta;
     }
 
-    private String resolveProjectEnvCliExecutableFromPath(AgentInfo agentInfo) throws Exception {
-        String[] commands = getExecutablePathResolveCommand(agentInfo);
+    private static List<String> getCliInstallationDirectories(List<PreparedEnvironment> preparedEnvironments) {
+        return preparedEnvironments.stream()
+                .map(PreparedEnvironment::cliInstallationDirectory)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
 
-        String stdOut = StringUtils.trimToNull(ProcHelper.executeAndGetStdOut(getContext(), commands));
-        if (stdOut == null) {
-            return null;
+    private void retainCliInstallations(String stepId, List<String> cliInstallationDirectories) throws Exception {
+        FilePath workspace = StepContextHelper.getWorkspacePath(getContext());
+        for (String cliInstallationDirectory : cliInstallationDirectories) {
+            CliInstallationCache.retain(new FilePath(workspace.getChannel(), cliInstallationDirectory), stepId);
         }
+    }
 
-        return stdOut.split(agentInfo.lineSeparator())[0];
+    private void abortSetup(SetupStages stages) {
+        if (stages.cancel()) {
+            getContext().onFailure(new AbortException("Project-Env setup did not complete within " + timeout + " seconds"));
+        }
     }
 
-    private String[] getExecutablePathResolveCommand(AgentInfo agentInfo) {
-        String executable = getProjectEnvCliExecutableName(agentInfo);
-        if (agentInfo.operatingSystem() == OperatingSystem.WINDOWS) {
-            return new String[]{"where", executable};
-        } else {
-            return new String[]{"/bin/sh", "-c", "which " + executable};
+    private void cancelSetupTimeout() {
+        ScheduledFuture<?> timeoutFuture = setupTimeout;
+        if (timeoutFuture != null) {
+            timeoutFuture.cancel(false);
         }
     }
 
-    private AgentInfo getAgentInfo() throws Exception {
-        return StepContextHelper.getComputer(getContext()).getChannel().call(new AgentInfoCallable());
+    /**
+     * Reuses the environment prepared by an earlier step of the same build for the same node, workspace and
+     * configuration, if it is still valid. Steps of parallel branches asking for the same environment wait for the
+     * preparation started first instead of preparing it concurrently.
+     */
+    private CompletableFuture<PreparedEnvironment> prepareEnvironment(String configFile, SetupReport setupReport) throws Exception {
+        Launcher launcher = StepContextHelper.getLauncher(getContext());
+        // an environment of a decorated launcher (e.g. within a container) cannot be validated from the agent
+        if (forceRefresh || launcher instanceof Launcher.DecoratedLauncher) {
+            return prepareEnvironment(configFile, launcher, setupReport);
+        }
+
+        FilePath workspace = StepContextHelper.getWorkspace(getContext());
+        String memoKey = String.join("|",
+                StepContextHelper.getComputer(getContext()).getName(),
+                workspace.getRemote(),
+                configFile,
+                String.valueOf(fixedCliVersion),
+                String.valueOf(sharedTools),
+                String.valueOf(tools));
+
+        RunMemo runMemo = RunMemoCache.get().getRunMemo(StepContextHelper.getRun(getContext()));
+        return runMemo.getEnvironment(memoKey,
+                        memoizedEnvironment -> validateMemoizedEnvironment(configFile, workspace, memoizedEnvironment, setupReport),
+                        () -> {
+                            CompletableFuture<String> configDigest = setupStages.supply(() -> workspace.act(new EnvironmentDigestCallable(configFile, List.of())));
+                            CompletableFuture<PreparedEnvironment> environment = prepareEnvironmentUnchecked(configFile, launcher, setupReport);
+                            return environment.thenCombine(configDigest, (preparedEnvironment, digest) -> new MemoizedEnvironment(digest, preparedEnvironment));
+                        })
+                .thenApply(MemoizedEnvironment::environment);
     }
 
-    private FilePath createTemporaryDirectory() throws Exception {
-        FilePath temporaryDirectoryRoot = StepContextHelper.getTemporaryDirectory(getContext());
-        String temporaryDirectoryName = generateTemporaryDirectoryName();
+    private CompletableFuture<Boolean> validateMemoizedEnvironment(String configFile, FilePath workspace, MemoizedEnvironment memoizedEnvironment, SetupReport setupReport) {
+        return setupStages.supply(() -> {
+            String configDigest = workspace.act(new EnvironmentDigestCallable(configFile, memoizedEnvironment.getReferencedPaths()));
+            if (configDigest == null || !configDigest.equals(memoizedEnvironment.configDigest())) {
+                return false;
+            }
 
-        return temporaryDirectoryRoot.child(temporaryDirectoryName);
+            StepContextHelper.getTaskListener(getContext()).getLogger().println("Reusing the Project-Env environment of " + configFile + " prepared earlier in this build");
+            setupReport.increment(SetupCounter.RUN_MEMO_HITS, 1);
+            if (memoizedEnvironment.environment().toolInfos() != null) {
+                setupReport.addTools(memoizedEnvironment.environment().toolInfos().keySet());
+            }
+            return true;
+        });
     }
 
-    private String generateTemporaryDirectoryName() {
-        return "withProjectEnv" + Util.getDigestOf(UUID.randomUUID().toString()).substring(0, 8);
+    private CompletableFuture<PreparedEnvironment> prepareEnvironmentUnchecked(String configFile, Launcher launcher, SetupReport setupReport) {
+        try {
+            return prepareEnvironment(configFile, launcher, setupReport);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
-    private FilePath downloadProjectEnvCliArchive(AgentInfo agentInfo, FilePath targetDirectory) throws Exception {
-        String archiveUrl = createProjectEnvCliArchiveUrl(agentInfo);
-        String archiveFilename = FilenameUtils.getName(archiveUrl);
+    /**
+     * Starts the setup stages which do not depend on each other (CLI version resolution, waiting for the prewarming,
+     * agent probe and tools snapshot restore) concurrently and prepares the environment as soon as all of them have
+     * completed.
+     */
+    private CompletableFuture<PreparedEnvironment> prepareEnvironment(String configFile, Launcher launcher, SetupReport setupReport) throws Exception {
+        // the launcher might run processes somewhere else than on the agent itself (e.g. within a container)
+        boolean processesRunOnAgent = !(launcher instanceof Launcher.DecoratedLauncher);
+        boolean controllerSidePreparation = !AGENT_SIDE_PREPARATION || !processesRunOnAgent;
+
+        AgentFacts agentFacts = AgentFactsCache.get().getAgentFacts(StepContextHelper.getComputer(getContext()));
+        String path = StepContextHelper.getEnvVars(getContext()).get("PATH");
+        CliPathLookup cliPathLookup = processesRunOnAgent ? agentFacts.getCliPathLookup(path) : null;
+
+        CompletableFuture<String> cliVersion = resolveCliVersion(setupReport);
+        CompletableFuture<Void> prewarm = awaitPrewarm(agentFacts, setupReport);
+        CompletableFuture<AgentInfo> agentInfo = resolveAgentInfo(agentFacts, setupReport, controllerSidePreparation || toolsSnapshot);
+        CompletableFuture<ToolsSnapshotTarget> unsavedToolsSnapshot = toolsSnapshot
+                ? setupStages.then(agentInfo, info -> restoreToolsSnapshot(configFile, info, setupReport))
+                : CompletableFuture.completedFuture(null);
+
+        CompletableFuture<PrepareRequest> request = setupStages.then(CompletableFuture.allOf(cliVersion, prewarm, unsavedToolsSnapshot),
+                ignored -> createPrepareRequest(configFile, cliVersion.join(), agentInfo.join(), cliPathLookup));
+        CompletableFuture<PreparedEnvironment> initialEnvironment = setupStages.then(request, initialRequest -> controllerSidePreparation
+                ? prepareOnController(launcher, initialRequest, setupReport)
+                : createAgentSidePreparer().prepare(initialRequest, setupReport));
+        CompletableFuture<PreparedEnvironment> admittedEnvironment = initialEnvironment.thenCompose(environment -> {
+            if (environment.isComplete()) {
+                return CompletableFuture.completedFuture(environment);
+            }
 
-        FilePath targetFile = targetDirectory.child(archiveFilename);
-        targetFile.copyFrom(new URI(archiveUrl).toURL());
+            // downloads and installations are limited controller-wide, so the agent has to be admitted before retrying
+            return setupStages.withPermit(acquireInstallPermit(setupReport), () -> controllerSidePreparation
+                    ? prepareOnControllerAdmitted(launcher, request.join(), environment, setupReport)
+                    : createAgentSidePreparer().prepareAdmitted(request.join(), environment, createCliInstaller(), setupReport));
+        });
 
-        return targetFile;
-    }
+        CompletableFuture<PreparedEnvironment> preparedEnvironment = setupStages.then(admittedEnvironment, environment -> {
+            agentFacts.setAgentInfo(environment.agentInfo());
+            if (processesRunOnAgent) {
+                agentFacts.setCliPathLookup(path, environment.cliPathLookup());
+            }
+
+            return environment;
+        });
 
-    private String createProjectEnvCliArchiveUrl(AgentInfo agentInfo) {
-        String cliTargetOs = getCliTargetOs(agentInfo);
-        String cliArchiveExtension = getCliArchiveExtension(agentInfo);
-        String cliTargetArchitecture = getCliTargetArchitecture(agentInfo);
+        return setupStages.then(preparedEnvironment, environment -> {
+            ToolsSnapshotTarget target = unsavedToolsSnapshot.join();
+            if (target != null) {
+                setupReport.time(SetupPhase.TOOLS_SNAPSHOT_SAVE, () -> {
+                    createToolsSnapshots(setupReport).save(target);
+                    return null;
+                });
+            }
 
-        return MessageFormat.format(PROJECT_ENV_CLI_DOWNLOAD_PATTERN, getCliVersion(), cliTargetOs, cliTargetArchitecture, cliArchiveExtension);
+            return environment;
+        });
     }
 
-    private String getCliVersion() {
-        if (fixedCliVersion != null) {
-            return fixedCliVersion;
+    /**
+     * @return the information about the agent or {@code null}, if it is not required before the preparation and not
+     * known yet
+     */
+    private CompletableFuture<AgentInfo> resolveAgentInfo(AgentFacts agentFacts, SetupReport setupReport, boolean required) {
+        AgentInfo cachedAgentInfo = agentFacts.getAgentInfo();
+        if (cachedAgentInfo != null || !required) {
+            return CompletableFuture.completedFuture(cachedAgentInfo);
         }
 
-        return resolveLatestCliVersion();
+        return setupStages.supply(() -> setupReport.time(SetupPhase.AGENT_PROBE, this::getAgentInfo));
     }
 
-    private String resolveLatestCliVersion() {
-        try {
-            try (CloseableHttpClient httpClient = HttpClients.custom().disableRedirectHandling().build()) {
-                HttpUriRequest request = RequestBuilder.get().setUri("https://github.com/Project-Env/project-env-cli/releases/latest").build();
-                try (CloseableHttpResponse response = httpClient.execute(request)) {
-                    int statusCode = response.getStatusLine().getStatusCode();
-                    if (statusCode != 302) {
-                        throw new IllegalStateException("expected redirection, but got " + statusCode);
-                    }
-
-                    Header location = response.getFirstHeader("Location");
-                    if (location == null) {
-                        throw new IllegalStateException("no redirection location present");
-                    }
-
-                    Matcher matcher = LATEST_CLI_VERSION_PATTERN.matcher(location.getValue());
-                    if (!matcher.find()) {
-                        throw new IllegalStateException("failed to extract latest Project-Env CLI version from URL " + location.getValue());
-                    }
-
-                    return matcher.group(1);
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("failed to resolve latest Project-Env CLI version", e);
+    /**
+     * @return the snapshot target which has to be saved after the preparation or {@code null}, if there is none
+     */
+    private ToolsSnapshotTarget restoreToolsSnapshot(String configFile, AgentInfo agentInfo, SetupReport setupReport) throws Exception {
+        ToolsSnapshotTarget target = resolveToolsSnapshotTarget(configFile, agentInfo);
+        if (target == null) {
+            return null;
         }
-    }
 
-    private String getCliTargetOs(AgentInfo agentInfo) {
-        OperatingSystem operatingSystem = agentInfo.operatingSystem();
-        return switch (operatingSystem) {
-            case WINDOWS -> CLI_TARGET_OS_WINDOWS;
-            case MACOS -> CLI_TARGET_OS_MACOS;
-            case LINUX -> CLI_TARGET_OS_LINUX;
-        };
+        boolean restored = setupReport.time(SetupPhase.TOOLS_SNAPSHOT_RESTORE, () -> createToolsSnapshots(setupReport).restore(target));
+        return restored ? null : target;
     }
 
-    private String getCliArchiveExtension(AgentInfo agentInfo) {
-        OperatingSystem operatingSystem = agentInfo.operatingSystem();
-        return switch (operatingSystem) {
-            case WINDOWS -> CLI_ARCHIVE_EXTENSION_ZIP;
-            case MACOS, LINUX -> CLI_ARCHIVE_EXTENSION_TAR_GZ;
-        };
+    private ToolsSnapshotTarget resolveToolsSnapshotTarget(String configFile, AgentInfo agentInfo) throws Exception {
+        ToolsSnapshotTarget target = ToolsSnapshotTarget.resolve(
+                StepContextHelper.getWorkspace(getContext()).child(configFile),
+                StepContextHelper.getAgentRootDirectory(getContext()),
+                sharedTools,
+                tools,
+                agentInfo);
+        if (target == null) {
+            StepContextHelper.getTaskListener(getContext()).getLogger().println("Project-Env configuration does not contain a tools_directory, not using tools snapshots");
+        }
+
+        return target;
     }
 
-    private String getCliTargetArchitecture(AgentInfo agentInfo) {
-        var architecture = agentInfo.architecture();
-        return switch (architecture) {
-            case AMD64 -> CLI_TARGET_ARCH_AMD_64;
-            case AARCH64 -> CLI_TARGET_ARCH_AARCH64;
-        };
+    private ToolsSnapshots createToolsSnapshots(SetupReport setupReport) throws Exception {
+        TaskListener listener = StepContextHelper.getTaskListener(getContext());
+        return new ToolsSnapshots(
+                ToolsSnapshotStore.get(),
+                new InstallLocks(StepContextHelper.getAgentRootDirectory(getContext()), listener, setupReport),
+                listener,
+                setupReport);
     }
 
-    private void extractProjectEnvCliArchive(FilePath archive, FilePath target) throws Exception {
-        if (StringUtils.endsWith(archive.getName(), CLI_ARCHIVE_EXTENSION_TAR_GZ)) {
-            archive.untar(target, FilePath.TarCompression.GZIP);
-        } else {
-            archive.unzip(target);
+    private CompletableFuture<Void> awaitPrewarm(AgentFacts agentFacts, SetupReport setupReport) throws Exception {
+        CompletableFuture<Void> prewarm = agentFacts.getPrewarm();
+        if (prewarm == null || prewarm.isDone()) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        // waiting is cheaper than downloading the same CLI and tools concurrently to the prewarming
+        StepContextHelper.getTaskListener(getContext()).getLogger().println("Waiting for the Project-Env prewarming of the agent to complete");
+        long start = System.nanoTime();
+        return prewarm
+                .exceptionally(e -> null)
+                .thenRun(() -> setupReport.addDuration(SetupPhase.PREWARM_WAIT, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
     }
 
-    private String resolveProjectEnvCliExecutable(AgentInfo agentInfo, FilePath sourceDirectory) throws Exception {
-        String executableFilename = getProjectEnvCliExecutableName(agentInfo);
-        FilePath executable = sourceDirectory.child(executableFilename);
-        if (!executable.exists()) {
-            throw new IllegalStateException("could not find Project-Env CLI at " + executable);
+    /**
+     * @param outcome the outcome of a setup which did not complete or {@code null}, if the setup completed
+     */
+    private void recordSetupReport(String stepId, SetupReport setupReport, String outcome) throws Exception {
+        String description = String.join(", ", configFiles) + " on " + StepContextHelper.getComputer(getContext()).getDisplayName();
+        if (outcome != null) {
+            description += " (" + outcome + ")";
         }
+        ProjectEnvSetupAction.record(StepContextHelper.getRun(getContext()), stepId, description, setupReport);
+        ProjectEnvMetrics.get().record(setupReport);
+    }
 
-        return executable.getRemote();
+    private void recordIncompleteSetupReport(String stepId, SetupReport setupReport, String outcome) {
+        try {
+            recordSetupReport(stepId, setupReport, outcome);
+        } catch (Exception e) {
+            // e.g. the agent went offline, which must not hide the actual failure of the step
+            LOGGER.log(Level.FINE, "failed to record Project-Env setup report", e);
+        }
     }
 
-    private String getProjectEnvCliExecutableName(AgentInfo agentInfo) {
-        return CLI_EXECUTABLE_FILE_NAME + getExecutableExtension(agentInfo);
+    private PrepareRequest createPrepareRequest(String configFile, String cliVersion, AgentInfo agentInfo, CliPathLookup cliPathLookup) {
+        return PrepareRequest.builder()
+                .cliVersion(cliVersion)
+                .cliDebug(cliDebug)
+                .configFile(configFile)
+                .agentDownloadUrlTemplate(CliInstallers.getAgentDownloadUrlTemplate(getEffectiveCliDownloadStrategy(), getEffectiveCliMirrorUrlTemplate()))
+                .cliCacheMaxSize(CliInstallationCache.MAX_SIZE)
+                .cliLogLineLimit(ProjectEnvGlobalConfiguration.get().getCliLogLineLimit())
+                .forceRefresh(forceRefresh)
+                .skipCleanup(skipCleanup)
+                .sharedTools(sharedTools)
+                .sharedToolsMaxSize(SharedToolsStore.MAX_SIZE)
+                .tools(tools)
+                .agentInfo(agentInfo)
+                .cliPathLookup(cliPathLookup)
+                .build();
     }
 
-    private String getExecutableExtension(AgentInfo agentInfo) {
-        return agentInfo.operatingSystem() == OperatingSystem.WINDOWS ?
-                CLI_EXECUTABLE_FILE_EXTENSION_WINDOWS : CLI_EXECUTABLE_FILE_EXTENSION_OTHERS;
+    /**
+     * @return the prepared environment, which is incomplete if the agent has to be admitted first
+     */
+    private PreparedEnvironment prepareOnController(Launcher launcher, PrepareRequest request, SetupReport setupReport) throws Exception {
+        // without limits, the second run of the preparation can be saved
+        PrepareRequest initialRequest = InstallAdmission.get().isLimited() ? request : request.toBuilder().installationsAdmitted(true).build();
+        PreparedEnvironment environment = createControllerSidePreparer(launcher, request.agentInfo()).prepare(initialRequest, createCliInstaller());
+        setupReport.merge(environment.setupReport());
+
+        return environment;
     }
 
-    private Map<String, List<ToolInfo>> executeProjectEnvCli(String executable) throws Exception {
-        String[] commands = createProjectEnvCliCommand(executable);
-        ProcResult procResult = ProcHelper.execute(getContext(), commands);
-        if (procResult.exitCode() != 0) {
-            throw new IllegalStateException("received non-zero exit code " + procResult.exitCode() + " from Project-Env CLI");
-        }
+    private PreparedEnvironment prepareOnControllerAdmitted(Launcher launcher, PrepareRequest request, PreparedEnvironment incompleteEnvironment,
+                                                            SetupReport setupReport) throws Exception {
+        PrepareRequest admittedRequest = request.toBuilder()
+                .cliPathLookup(incompleteEnvironment.cliPathLookup())
+                .installationsAdmitted(true)
+                .build();
+        PreparedEnvironment environment = createControllerSidePreparer(launcher, request.agentInfo()).prepare(admittedRequest, createCliInstaller());
+        setupReport.merge(environment.setupReport());
 
-        return ToolInfoParser.fromJson(procResult.stdOutput());
+        return environment;
     }
 
-    private String[] createProjectEnvCliCommand(String executable) {
-        List<String> command = new ArrayList<>();
-        command.add(executable);
-        command.add("--config-file=" + configFile);
-        if (cliDebug) {
-            command.add("--debug");
+    private CompletableFuture<InstallPermit> acquireInstallPermit(SetupReport setupReport) {
+        try {
+            return InstallAdmission.get().acquire(StepContextHelper.getComputer(getContext()).getName(), StepContextHelper.getTaskListener(getContext()), setupReport);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
         }
+    }
 
-        return command.toArray(new String[0]);
+    private AgentEnvironmentPreparer createAgentSidePreparer() throws Exception {
+        Computer computer = StepContextHelper.getComputer(getContext());
+        return new AgentEnvironmentPreparer(
+                computer.getName(),
+                computer.getChannel(),
+                StepContextHelper.getAgentRootDirectory(getContext()),
+                StepContextHelper.getWorkspacePath(getContext()).getRemote(),
+                StepContextHelper.getEnvVars(getContext()),
+                StepContextHelper.getTaskListener(getContext()));
     }
 
-    private void processToolInfos(EnvVars envVars, Map<String, List<ToolInfo>> allToolInfos, AgentInfo agentInfo) throws Exception {
-        for (Map.Entry<String, List<ToolInfo>> entry : allToolInfos.entrySet()) {
-            for (ToolInfo toolInfo : entry.getValue()) {
-                List<String> pathElements = toolInfo.pathElements();
-                for (int i = 0; i < pathElements.size(); i++) {
-                    String pathElement = pathElements.get(i);
+    private EnvironmentPreparer createControllerSidePreparer(Launcher launcher, AgentInfo agentInfo) throws Exception {
+        return new EnvironmentPreparer(
+                agentInfo,
+                launcher,
+                StepContextHelper.getEnvVars(getContext()),
+                StepContextHelper.getWorkspace(getContext()),
+                StepContextHelper.getAgentRootDirectory(getContext()),
+                StepContextHelper.getTaskListener(getContext()),
+                new SetupReport());
+    }
 
-                    envVars.put(PATH_VAR_PREFIX + StringUtils.upperCase(entry.getKey()) + "_" + i, pathElement);
-                }
+    private AgentInfo getAgentInfo() throws Exception {
+        return StepContextHelper.getComputer(getContext()).getChannel().call(new AgentInfoCallable());
+    }
 
-                envVars.putAll(toolInfo.environmentVariables());
+    private CliInstaller createCliInstaller() {
+        return CliInstallers.create(getEffectiveCliDownloadStrategy(), getEffectiveCliMirrorUrlTemplate());
+    }
 
-                if (StringUtils.equals(entry.getKey(), PROJECT_ENV_MAVEN_TOOL_NAME)) {
-                    handleMavenUserSettings(toolInfo, agentInfo);
-                }
-            }
-        }
+    private CliDownloadStrategy getEffectiveCliDownloadStrategy() {
+        return cliDownloadStrategy != null ? cliDownloadStrategy : ProjectEnvGlobalConfiguration.get().getCliDownloadStrategy();
     }
 
-    private void handleMavenUserSettings(ToolInfo toolInfo, AgentInfo agentInfo) throws Exception {
-        String mavenUserSettingsPath = toolInfo.unhandledProjectResources().get(PROJECT_ENV_MAVEN_USER_SETTINGS_FILE);
-        if (mavenUserSettingsPath != null && agentInfo.operatingSystem() != OperatingSystem.WINDOWS) {
-            FilePath workspace = StepContextHelper.getWorkspace(getContext());
+    private String getEffectiveCliMirrorUrlTemplate() {
+        return StringUtils.defaultIfBlank(cliMirrorUrlTemplate, ProjectEnvGlobalConfiguration.get().getCliMirrorUrlTemplate());
+    }
 
-            FilePath primaryExecutable = workspace.child(toolInfo.primaryExecutable());
-            FilePath primaryExecutableParent = primaryExecutable.getParent();
-            if (primaryExecutableParent == null) {
-                throw new IllegalStateException();
-            }
+    /**
+     * @return the CLI version to use, where the latest version is resolved only once per build, so that all steps of
+     * the build use the same version
+     */
+    private CompletableFuture<String> resolveCliVersion(SetupReport setupReport) throws Exception {
+        if (fixedCliVersion != null) {
+            return CompletableFuture.completedFuture(fixedCliVersion);
+        }
 
-            FilePath renamedPrimaryExecutable = primaryExecutableParent.child("_" + primaryExecutable.getName());
-            primaryExecutable.copyToWithPermission(renamedPrimaryExecutable);
+        long start = System.nanoTime();
+        TaskListener listener = StepContextHelper.getTaskListener(getContext());
+        RunMemo runMemo = RunMemoCache.get().getRunMemo(StepContextHelper.getRun(getContext()));
+        return runMemo.getLatestCliVersion(() -> setupStages.supply(() -> CliVersionResolver.get().resolveLatestVersion()))
+                .exceptionally(e -> {
+                    // the CLI might still be resolvable through the PATH, so we fail only if it is really required
+                    Throwable cause = SetupStages.unwrap(e);
+                    LOGGER.log(Level.FINE, "failed to resolve latest Project-Env CLI version", cause);
+                    listener.getLogger().println("Failed to resolve latest Project-Env CLI version: " + cause.getMessage());
+                    return null;
+                })
+                .whenComplete((version, failure) -> setupReport.addDuration(SetupPhase.VERSION_RESOLUTION, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
 
-            primaryExecutable.write(generateMavenWrapperScript(mavenUserSettingsPath), StandardCharsets.UTF_8.name());
-        }
+    private void invokeBodyWithEnvDelta(ProjectEnvDelta projectEnvDelta, BodyExecutionCallback callback) throws Exception {
+        getContext()
+                .newBodyInvoker()
+                .withContexts(createEnvironmentExpander(projectEnvDelta))
+                .withCallback(callback)
+                .start();
     }
 
-    private String generateMavenWrapperScript(String mavenUserSettingsPath) {
-        return "#!/bin/sh\n" +
-                "\"`dirname \"$0\"`/_`basename \"$0\"`\" -s \"" + mavenUserSettingsPath + "\" $*";
+    private EnvironmentExpander createEnvironmentExpander(ProjectEnvDelta projectEnvDelta) throws Exception {
+        return EnvironmentExpander
+                .merge(getContext().get(EnvironmentExpander.class), new ProjectEnvExpander(projectEnvDelta));
     }
 
-    private BodyExecutionCallback createTempDirectoryCleanupCallback(FilePath tempDirectory) {
+    /**
+     * Retained, so that the body callback ({@code WithProjectEnvStepExecution$1}) persisted by earlier versions can still
+     * be resumed. Has to remain the first anonymous class of this file and must not be changed.
+     */
+    @Deprecated
+    @SuppressFBWarnings(value = "UPM_UNCALLED_PRIVATE_METHOD", justification = "retained for the serial form of earlier versions")
+    private BodyExecutionCallback createLegacyTempDirectoryCleanupCallback(FilePath tempDirectory) {
         return new GeneralNonBlockingStepExecution.TailCall() {
             @Override
             protected void finished(StepContext context) throws Exception {
@@ -318,22 +592,19 @@ public class WithProjectEnvStepExecution extends GeneralNonBlockingStepExecution
         };
     }
 
-    private void invokeBodyWithEnvVarsAndCallback(EnvVars projectEnvVars, BodyExecutionCallback callback) throws Exception {
-        getContext()
-                .newBodyInvoker()
-                .withContexts(createEnvironmentExpander(projectEnvVars))
-                .withCallback(callback)
-                .start();
-    }
-
-    private EnvironmentExpander createEnvironmentExpander(EnvVars projectEnvVars) throws Exception {
-        return EnvironmentExpander
-                .merge(getContext().get(EnvironmentExpander.class), new EnvironmentExpander() {
-                    @Override
-                    public void expand(@NonNull EnvVars originalEnvVars) {
-                        originalEnvVars.overrideAll(projectEnvVars);
-                    }
-                });
+    /**
+     * Retained, so that the environment expander ({@code WithProjectEnvStepExecution$2}) persisted by earlier versions can
+     * still be resumed. Has to remain the second anonymous class of this file and must not be changed.
+     */
+    @Deprecated
+    @SuppressFBWarnings(value = "UPM_UNCALLED_PRIVATE_METHOD", justification = "retained for the serial form of earlier versions")
+    private EnvironmentExpander createLegacyEnvironmentExpander(EnvVars projectEnvVars) {
+        return new EnvironmentExpander() {
+            @Override
+            public void expand(@NonNull EnvVars originalEnvVars) {
+                originalEnvVars.overrideAll(projectEnvVars);
+            }
+        };
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+package io.jenkins.plugins.projectenv.admission;
+
+import hudson.model.TaskListener;
+import io.jenkins.plugins.projectenv.config.ProjectEnvGlobalConfiguration;
+import io.jenkins.plugins.projectenv.metrics.SetupCounter;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Controller-wide admission control for downloads and installations (of the CLI as well as of the tools), which
+ * limits how many of them run at the same time, in total and per agent. Waiting steps are admitted in the order they
+ * arrived, skipping only those whose agent has no free slot, so that a busy agent does not block the others. Waiting
+ * steps do not occupy a thread, their admissions are completed by the step releasing the slot.
+ */
+public class InstallAdmission {
+
+    private static final InstallAdmission INSTANCE = new InstallAdmission(
+            () -> ProjectEnvGlobalConfiguration.get().getMaxConcurrentInstallations(),
+            () -> ProjectEnvGlobalConfiguration.get().getMaxConcurrentInstallationsPerAgent());
+
+    private final IntSupplier globalLimit;
+    private final IntSupplier perAgentLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Ticket> queue = new ArrayList<>();
+    private final Map<String, Integer> runningPerAgent = new HashMap<>();
+    private int running;
+
+    InstallAdmission(IntSupplier globalLimit, IntSupplier perAgentLimit) {
+        this.globalLimit = globalLimit;
+        this.perAgentLimit = perAgentLimit;
+    }
+
+    public static InstallAdmission get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return whether downloads and installations are limited at all, otherwise every agent is admitted right away
+     */
+    public boolean isLimited() {
+        return globalLimit.getAsInt() > 0 || perAgentLimit.getAsInt() > 0;
+    }
+
+    /**
+     * Requests the admission of the given agent to download or install something. No thread is blocked while waiting,
+     * the returned future is completed as soon as the agent has been admitted. Cancelling the future gives up waiting.
+     *
+     * @param nodeName the name of the agent
+     */
+    public CompletableFuture<InstallPermit> acquire(String nodeName, TaskListener listener, SetupReport setupReport) {
+        Ticket ticket = new Ticket(nodeName, listener, setupReport);
+        List<Ticket> admittedTickets;
+        int position;
+        lock.lock();
+        try {
+            queue.add(ticket);
+            admittedTickets = dispatch();
+            position = queue.indexOf(ticket) + 1;
+            if (position > 0) {
+                ticket.waitStart = System.nanoTime();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (position > 0) {
+            listener.getLogger().println("Waiting for a free Project-Env installation slot (position " + position + " in the queue)");
+        }
+        ticket.permit.whenComplete((permit, failure) -> {
+            if (failure != null) {
+                abandon(ticket);
+            }
+        });
+        admit(admittedTickets);
+
+        return ticket.permit;
+    }
+
+    /**
+     * Admits waiting steps after the limits have been raised.
+     */
+    public void limitsChanged() {
+        List<Ticket> admittedTickets;
+        lock.lock();
+        try {
+            admittedTickets = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        admit(admittedTickets);
+    }
+
+    private void abandon(Ticket ticket) {
+        List<Ticket> admittedTickets;
+        lock.lock();
+        try {
+            // the ticket might have been admitted concurrently, in which case its slot is released by admit
+            queue.remove(ticket);
+            admittedTickets = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        admit(admittedTickets);
+    }
+
+    private void release(Ticket ticket) {
+        List<Ticket> admittedTickets;
+        lock.lock();
+        try {
+            releaseSlot(ticket);
+            admittedTickets = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        admit(admittedTickets);
+    }
+
+    private void releaseSlot(Ticket ticket) {
+        running--;
+        runningPerAgent.computeIfPresent(ticket.nodeName, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * @return the tickets which got a slot, whose futures have to be completed outside of the lock, since completing
+     * them runs the stages depending on them
+     */
+    private List<Ticket> dispatch() {
+        int maxRunning = globalLimit.getAsInt();
+        int maxRunningPerAgent = perAgentLimit.getAsInt();
+
+        List<Ticket> admittedTickets = new ArrayList<>();
+        for (Iterator<Ticket> iterator = queue.iterator(); iterator.hasNext(); ) {
+            if (maxRunning > 0 && running >= maxRunning) {
+                break;
+            }
+
+            Ticket ticket = iterator.next();
+            if (maxRunningPerAgent > 0 && runningPerAgent.getOrDefault(ticket.nodeName, 0) >= maxRunningPerAgent) {
+                continue;
+            }
+
+            iterator.remove();
+            running++;
+            runningPerAgent.merge(ticket.nodeName, 1, Integer::sum);
+            admittedTickets.add(ticket);
+        }
+
+        return admittedTickets;
+    }
+
+    private void admit(List<Ticket> admittedTickets) {
+        for (Ticket ticket : admittedTickets) {
+            if (ticket.waitStart != 0) {
+                long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ticket.waitStart);
+                ticket.setupReport.increment(SetupCounter.ADMISSION_WAITS, 1);
+                ticket.setupReport.increment(SetupCounter.ADMISSION_WAIT_MILLIS, waitedMillis);
+                ticket.listener.getLogger().println(String.format(Locale.ROOT, "Waited %.1f s for a free Project-Env installation slot", waitedMillis / 1000.0));
+            }
+
+            AtomicBoolean released = new AtomicBoolean();
+            InstallPermit permit = () -> {
+                if (released.compareAndSet(false, true)) {
+                    release(ticket);
+                }
+            };
+            if (!ticket.permit.complete(permit)) {
+                // the waiting step gave up in the meantime
+                permit.close();
+            }
+        }
+    }
+
+    private static final class Ticket {
+
+        private final String nodeName;
+        private final TaskListener listener;
+        private final SetupReport setupReport;
+        private final CompletableFuture<InstallPermit> permit = new CompletableFuture<>();
+        /**
+         * The start of the wait or {@code 0}, if the ticket has been admitted right away.
+         */
+        private volatile long waitStart;
+
+        private Ticket(String nodeName, TaskListener listener, SetupReport setupReport) {
+            this.nodeName = nodeName;
+            this.listener = listener;
+            this.setupReport = setupReport;
+        }
+
+    }
+
+}
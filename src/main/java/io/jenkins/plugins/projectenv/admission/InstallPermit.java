@@ -0,0 +1,12 @@
+package io.jenkins.plugins.projectenv.admission;
+
+/**
+ * A slot for downloads and installations granted by {@link InstallAdmission}, which is released on {@link #close()}.
+ */
+@FunctionalInterface
+public interface InstallPermit extends AutoCloseable {
+
+    @Override
+    void close();
+
+}
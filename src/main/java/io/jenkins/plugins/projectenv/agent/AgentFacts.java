@@ -0,0 +1,67 @@
+package io.jenkins.plugins.projectenv.agent;
+
+import hudson.remoting.VirtualChannel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Facts about a connected agent which do not change as long as its channel is open, so they only have to be probed
+ * once per connection.
+ */
+public class AgentFacts {
+
+    private final VirtualChannel channel;
+    private final Map<String, CliPathLookup> cliPathLookups = new ConcurrentHashMap<>();
+    private volatile AgentInfo agentInfo;
+    private volatile CompletableFuture<Void> prewarm;
+
+    AgentFacts(VirtualChannel channel) {
+        this.channel = channel;
+    }
+
+    VirtualChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return the agent info or {@code null}, if it has not been probed yet
+     */
+    public AgentInfo getAgentInfo() {
+        return agentInfo;
+    }
+
+    public void setAgentInfo(AgentInfo agentInfo) {
+        this.agentInfo = agentInfo;
+    }
+
+    /**
+     * @return the prewarming started when the agent came online or {@code null}, if the agent is not prewarmed
+     */
+    public CompletableFuture<Void> getPrewarm() {
+        return prewarm;
+    }
+
+    public void setPrewarm(CompletableFuture<Void> prewarm) {
+        this.prewarm = prewarm;
+    }
+
+    /**
+     * @param path the {@code PATH} the CLI has been resolved with, since builds can extend it
+     * @return the result of resolving the CLI through the given {@code PATH} or {@code null}, if it has not been
+     * resolved yet
+     */
+    public CliPathLookup getCliPathLookup(String path) {
+        return cliPathLookups.get(getCliPathLookupKey(path));
+    }
+
+    public void setCliPathLookup(String path, CliPathLookup cliPathLookup) {
+        cliPathLookups.put(getCliPathLookupKey(path), cliPathLookup);
+    }
+
+    private static String getCliPathLookupKey(String path) {
+        return path != null ? path : "";
+    }
+
+}
@@ -0,0 +1,56 @@
+package io.jenkins.plugins.projectenv.agent;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the {@link AgentFacts} per {@link Computer}. The facts are dropped as soon as the agent disconnects or
+ * reconnects, and are never returned for another channel than the one they have been probed through.
+ */
+@Extension
+public class AgentFactsCache extends ComputerListener {
+
+    private final Map<Computer, AgentFacts> agentFacts = new ConcurrentHashMap<>();
+
+    public static AgentFactsCache get() {
+        return ExtensionList.lookupSingleton(AgentFactsCache.class);
+    }
+
+    /**
+     * @return the facts about the agent connected through the current channel of the given computer
+     */
+    public AgentFacts getAgentFacts(Computer computer) {
+        VirtualChannel channel = computer.getChannel();
+        if (channel == null) {
+            throw new IllegalStateException("agent " + computer.getDisplayName() + " is offline");
+        }
+
+        return agentFacts.compute(computer, (key, facts) -> facts != null && facts.getChannel() == channel ? facts : new AgentFacts(channel));
+    }
+
+    public void invalidate(Computer computer) {
+        agentFacts.remove(computer);
+    }
+
+    @Override
+    public void onOnline(Computer computer, TaskListener listener) {
+        // other listeners might already have stored facts for the new channel (e.g. the prewarming)
+        VirtualChannel channel = computer.getChannel();
+        agentFacts.computeIfPresent(computer, (key, facts) -> facts.getChannel() == channel ? facts : null);
+    }
+
+    @Override
+    public void onOffline(@NonNull Computer computer, OfflineCause cause) {
+        invalidate(computer);
+    }
+
+}
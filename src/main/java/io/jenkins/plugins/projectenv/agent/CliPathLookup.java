@@ -0,0 +1,16 @@
+package io.jenkins.plugins.projectenv.agent;
+
+import java.io.Serializable;
+
+/**
+ * The result of resolving the Project-Env CLI through {@code PATH}.
+ *
+ * @param executable the resolved executable or {@code null}, if the CLI is not available through {@code PATH}
+ */
+public record CliPathLookup(String executable) implements Serializable {
+
+    public boolean isFound() {
+        return executable != null;
+    }
+
+}
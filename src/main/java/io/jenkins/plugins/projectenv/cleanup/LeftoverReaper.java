@@ -0,0 +1,82 @@
+package io.jenkins.plugins.projectenv.cleanup;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoCache;
+import io.jenkins.plugins.projectenv.tools.SharedToolsStore;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically deletes what Project-Env leaves behind on the nodes outside of the steps:
+ * <ul>
+ *     <li>the entries of the {@link SharedToolsStore} which are no longer linked from any workspace, since workspaces
+ *     are usually deleted without any step running afterwards</li>
+ *     <li>the entries of the {@link ToolInfoCache} which have not been used for a while, e.g. because their workspace
+ *     has been deleted</li>
+ *     <li>the temporary directories left behind by earlier versions of the plugin</li>
+ * </ul>
+ * The CLI installation cache is not covered, since it is kept within its disk budget by every installation.
+ */
+@Extension
+public class LeftoverReaper extends AsyncPeriodicWork {
+
+    private static final Logger LOGGER = Logger.getLogger(LeftoverReaper.class.getName());
+
+    private static final long RECURRENCE_PERIOD = SystemProperties.getLong(LeftoverReaper.class.getName() + ".recurrencePeriod", TimeUnit.HOURS.toMillis(6));
+    private static final long MAX_AGE = SystemProperties.getLong(LeftoverReaper.class.getName() + ".maxAge", TimeUnit.DAYS.toMillis(1));
+
+    public LeftoverReaper() {
+        super("Project-Env leftover reaper");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws InterruptedException {
+        for (Computer computer : Jenkins.get().getComputers()) {
+            Node node = computer.getNode();
+            FilePath rootDirectory = node != null ? node.getRootPath() : null;
+            if (rootDirectory == null) {
+                // offline agents are reaped as soon as they are online again
+                continue;
+            }
+
+            try {
+                long reclaimedBytes = new SharedToolsStore(rootDirectory, SharedToolsStore.MAX_SIZE).collectGarbage();
+                if (reclaimedBytes > 0) {
+                    listener.getLogger().println("Deleted unused Project-Env shared tools on " + computer.getDisplayName() + ", reclaiming "
+                            + Functions.humanReadableByteSize(reclaimedBytes));
+                }
+
+                int evictedToolInfos = ToolInfoCache.evict(rootDirectory, ToolInfoCache.MAX_AGE);
+                if (evictedToolInfos > 0) {
+                    listener.getLogger().println("Deleted " + evictedToolInfos + " unused Project-Env tool info cache entries on " + computer.getDisplayName());
+                }
+
+                ReapTemporaryDirectoriesCallable.Result result = rootDirectory.child("workspace").act(new ReapTemporaryDirectoriesCallable(MAX_AGE));
+                if (result.deletedDirectories() > 0) {
+                    listener.getLogger().println("Deleted " + result.deletedDirectories() + " leftover Project-Env temporary directories on "
+                            + computer.getDisplayName() + ", reclaiming " + Functions.humanReadableByteSize(result.reclaimedBytes()));
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "failed to reap Project-Env leftovers on " + computer.getDisplayName(), e);
+            }
+        }
+    }
+
+}
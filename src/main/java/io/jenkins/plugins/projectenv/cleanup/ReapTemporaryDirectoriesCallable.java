@@ -0,0 +1,101 @@
+package io.jenkins.plugins.projectenv.cleanup;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Deletes the {@code withProjectEnv*} temporary directories below a workspace root directory which are older than the
+ * given maximum age. The steps do not create these directories anymore, but earlier versions of the plugin left them
+ * behind in {@code <workspace>@tmp}.
+ */
+class ReapTemporaryDirectoriesCallable extends MasterToSlaveFileCallable<ReapTemporaryDirectoriesCallable.Result> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Workspaces might be nested within folders, so temporary directories are searched a few levels deep.
+     */
+    private static final int MAX_SEARCH_DEPTH = 4;
+    private static final String TEMPORARY_DIRECTORY_SUFFIX = "@tmp";
+    private static final String DIRECTORY_NAME_PREFIX = "withProjectEnv";
+
+    private final long maxAgeMillis;
+
+    ReapTemporaryDirectoriesCallable(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    @Override
+    public Result invoke(File workspaceRootDirectory, VirtualChannel channel) throws IOException {
+        long deletedBefore = System.currentTimeMillis() - maxAgeMillis;
+
+        if (!workspaceRootDirectory.isDirectory()) {
+            return new Result(0, 0);
+        }
+
+        // the search has to be completed before deleting, since it would otherwise descend into deleted directories
+        List<Path> temporaryDirectoryRoots;
+        try (Stream<Path> directories = Files.find(workspaceRootDirectory.toPath(), MAX_SEARCH_DEPTH,
+                (path, attributes) -> attributes.isDirectory() && path.getFileName().toString().endsWith(TEMPORARY_DIRECTORY_SUFFIX))) {
+            temporaryDirectoryRoots = directories.toList();
+        }
+
+        Result result = new Result(0, 0);
+        for (Path temporaryDirectoryRoot : temporaryDirectoryRoots) {
+            result = result.plus(reap(temporaryDirectoryRoot, deletedBefore));
+        }
+
+        return result;
+    }
+
+    private Result reap(Path temporaryDirectoryRoot, long deletedBefore) throws IOException {
+        Result result = new Result(0, 0);
+        try (Stream<Path> children = Files.list(temporaryDirectoryRoot)) {
+            for (Path temporaryDirectory : (Iterable<Path>) children::iterator) {
+                if (!temporaryDirectory.getFileName().toString().startsWith(DIRECTORY_NAME_PREFIX)
+                        || Files.getLastModifiedTime(temporaryDirectory, LinkOption.NOFOLLOW_LINKS).toMillis() >= deletedBefore) {
+                    continue;
+                }
+
+                long size = computeSize(temporaryDirectory);
+                Util.deleteRecursive(temporaryDirectory.toFile());
+                result = result.plus(new Result(1, size));
+            }
+        }
+
+        return result;
+    }
+
+    private static long computeSize(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.mapToLong(file -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    return attributes.isRegularFile() ? attributes.size() : 0;
+                } catch (IOException e) {
+                    return 0;
+                }
+            }).sum();
+        }
+    }
+
+    record Result(int deletedDirectories, long reclaimedBytes) implements Serializable {
+
+        Result plus(Result other) {
+            return new Result(deletedDirectories + other.deletedDirectories, reclaimedBytes + other.reclaimedBytes);
+        }
+
+    }
+
+}
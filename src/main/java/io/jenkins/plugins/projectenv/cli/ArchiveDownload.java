@@ -0,0 +1,130 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Downloads an archive and passes it to a consumer (e.g. an extraction) while it is being downloaded, so that the
+ * archive is processed in a single pass. The archive is hashed while streaming and verified against the SHA-256
+ * checksum published next to it ({@code <archive URL>.sha256}), if there is one. A dropped transfer is resumed with a
+ * HTTP range request, without the consumer noticing. Any other failure (including a checksum mismatch) resets the
+ * consumer and retries the download from the start with an exponential backoff.
+ */
+public class ArchiveDownload {
+
+    private static final Logger LOGGER = Logger.getLogger(ArchiveDownload.class.getName());
+
+    static final String CHECKSUM_FILE_EXTENSION = ".sha256";
+
+    @FunctionalInterface
+    public interface ConnectionOpener {
+
+        URLConnection open(URL url) throws IOException;
+
+    }
+
+    @FunctionalInterface
+    public interface ArchiveConsumer {
+
+        /**
+         * Consumes the archive, which does not have to be read until its end.
+         */
+        void consume(InputStream inputStream) throws IOException, InterruptedException;
+
+    }
+
+    @FunctionalInterface
+    public interface Reset {
+
+        /**
+         * Discards everything the consumer produced during a failed attempt.
+         */
+        void reset() throws IOException, InterruptedException;
+
+    }
+
+    private final String archiveUrl;
+    private final ConnectionOpener connectionOpener;
+    private final DownloadOptions options;
+
+    public ArchiveDownload(String archiveUrl, ConnectionOpener connectionOpener, DownloadOptions options) {
+        this.archiveUrl = archiveUrl;
+        this.connectionOpener = connectionOpener;
+        this.options = options;
+    }
+
+    /**
+     * @return the number of downloaded archive bytes of the successful attempt
+     */
+    public long download(ArchiveConsumer consumer, Reset reset) throws IOException, InterruptedException {
+        String expectedChecksum = fetchPublishedChecksum();
+        if (expectedChecksum == null) {
+            LOGGER.log(Level.FINE, "no checksum published for {0}, skipping verification", archiveUrl);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try (ResumableInputStream inputStream = new ResumableInputStream(URI.create(archiveUrl).toURL(), connectionOpener, options)) {
+                consumer.consume(inputStream);
+                // the consumer might have stopped at the end of the archive content, before the end of the transfer
+                inputStream.transferTo(OutputStream.nullOutputStream());
+                inputStream.verify(expectedChecksum);
+
+                return inputStream.getPosition();
+            } catch (FileNotFoundException e) {
+                // a missing archive does not get better by retrying
+                throw e;
+            } catch (IOException e) {
+                // neither does an aborted build, whereas timeouts are retried like any other failure
+                if (ResumableInputStream.isInterruption(e) || attempt >= options.maxAttempts()) {
+                    throw e;
+                }
+
+                LOGGER.log(Level.WARNING, "attempt " + attempt + " to download " + archiveUrl + " failed, retrying", e);
+                reset.reset();
+                Thread.sleep(options.getBackoffMillis(attempt));
+            }
+        }
+    }
+
+    /**
+     * @return the published checksum or {@code null}, if there is none
+     */
+    private String fetchPublishedChecksum() throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                URLConnection connection = connectionOpener.open(URI.create(archiveUrl + CHECKSUM_FILE_EXTENSION).toURL());
+                connection.setConnectTimeout(options.timeoutMillis());
+                connection.setReadTimeout(options.timeoutMillis());
+                try (InputStream inputStream = connection.getInputStream()) {
+                    // the checksum file either contains the checksum only or the checksum followed by the file name
+                    String content = new String(inputStream.readNBytes(1024), StandardCharsets.US_ASCII).trim();
+                    String checksum = StringUtils.substringBefore(content, " ").toLowerCase();
+                    if (!checksum.matches("[0-9a-f]{64}")) {
+                        throw new IOException("invalid checksum published at " + connection.getURL());
+                    }
+
+                    return checksum;
+                }
+            } catch (FileNotFoundException e) {
+                return null;
+            } catch (IOException e) {
+                if (attempt >= options.maxAttempts()) {
+                    throw e;
+                }
+
+                Thread.sleep(options.getBackoffMillis(attempt));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Downloads a CLI archive on the agent and extracts it while downloading. Returns the number of downloaded bytes.
+ */
+class CliArchiveDownloadCallable extends MasterToSlaveFileCallable<Long> {
+
+    private final String archiveUrl;
+    private final boolean tarGzArchive;
+    private final DownloadOptions downloadOptions;
+
+    CliArchiveDownloadCallable(String archiveUrl, boolean tarGzArchive, DownloadOptions downloadOptions) {
+        this.archiveUrl = archiveUrl;
+        this.tarGzArchive = tarGzArchive;
+        this.downloadOptions = downloadOptions;
+    }
+
+    @Override
+    public Long invoke(File targetDirectory, VirtualChannel channel) throws IOException, InterruptedException {
+        FilePath target = new FilePath(targetDirectory);
+        ArchiveDownload download = new ArchiveDownload(archiveUrl, URL::openConnection, downloadOptions);
+
+        // the files extracted by a failed attempt must not be mixed with the ones of the next attempt
+        return download.download(inputStream -> {
+            if (tarGzArchive) {
+                target.untarFrom(inputStream, FilePath.TarCompression.GZIP);
+            } else {
+                target.unzipFrom(inputStream);
+            }
+        }, target::deleteContents);
+    }
+
+}
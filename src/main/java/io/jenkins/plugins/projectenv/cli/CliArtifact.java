@@ -0,0 +1,83 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import io.jenkins.plugins.projectenv.agent.Architecture;
+import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.Serializable;
+import java.text.MessageFormat;
+
+public record CliArtifact(String version, OperatingSystem operatingSystem, Architecture architecture) implements Serializable {
+
+    /**
+     * The download URL template of the CLI archives, where {@code {0}} is replaced with the version, {@code {1}} with
+     * the target OS, {@code {2}} with the target architecture and {@code {3}} with the archive extension.
+     */
+    public static final String DEFAULT_DOWNLOAD_URL_TEMPLATE = "https://github.com/Project-Env/project-env-core/releases/download/v{0}/cli-{0}-{1}-{2}.{3}";
+
+    private static final String CLI_ARCHIVE_EXTENSION_TAR_GZ = "tar.gz";
+    private static final String CLI_ARCHIVE_EXTENSION_ZIP = "zip";
+
+    private static final String CLI_EXECUTABLE_FILE_NAME = "project-env-cli";
+
+    private static final String CLI_EXECUTABLE_FILE_EXTENSION_WINDOWS = ".exe";
+    private static final String CLI_EXECUTABLE_FILE_EXTENSION_OTHERS = StringUtils.EMPTY;
+
+    private static final String CLI_TARGET_OS_WINDOWS = "windows";
+    private static final String CLI_TARGET_OS_MACOS = "macos";
+    private static final String CLI_TARGET_OS_LINUX = "linux";
+
+    private static final String CLI_TARGET_ARCH_AMD_64 = "amd64";
+    private static final String CLI_TARGET_ARCH_AARCH64 = "aarch64";
+
+    public static String getExecutableName(OperatingSystem operatingSystem) {
+        return CLI_EXECUTABLE_FILE_NAME + (operatingSystem == OperatingSystem.WINDOWS ?
+                CLI_EXECUTABLE_FILE_EXTENSION_WINDOWS : CLI_EXECUTABLE_FILE_EXTENSION_OTHERS);
+    }
+
+    public String getExecutableName() {
+        return getExecutableName(operatingSystem);
+    }
+
+    public String getTargetOs() {
+        return switch (operatingSystem) {
+            case WINDOWS -> CLI_TARGET_OS_WINDOWS;
+            case MACOS -> CLI_TARGET_OS_MACOS;
+            case LINUX -> CLI_TARGET_OS_LINUX;
+        };
+    }
+
+    public String getTargetArchitecture() {
+        return switch (architecture) {
+            case AMD64 -> CLI_TARGET_ARCH_AMD_64;
+            case AARCH64 -> CLI_TARGET_ARCH_AARCH64;
+        };
+    }
+
+    public String getArchiveExtension() {
+        return switch (operatingSystem) {
+            case WINDOWS -> CLI_ARCHIVE_EXTENSION_ZIP;
+            case MACOS, LINUX -> CLI_ARCHIVE_EXTENSION_TAR_GZ;
+        };
+    }
+
+    public boolean isTarGzArchive() {
+        return StringUtils.equals(getArchiveExtension(), CLI_ARCHIVE_EXTENSION_TAR_GZ);
+    }
+
+    public String getDownloadUrl(String downloadUrlTemplate) {
+        return MessageFormat.format(downloadUrlTemplate, version, getTargetOs(), getTargetArchitecture(), getArchiveExtension());
+    }
+
+    public String getArchiveFileName() {
+        return "cli-" + getCacheKey() + "." + getArchiveExtension();
+    }
+
+    /**
+     * @return a file system safe key which uniquely identifies this artifact (version, OS and architecture)
+     */
+    public String getCacheKey() {
+        return (version + "-" + getTargetOs() + "-" + getTargetArchitecture()).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+}
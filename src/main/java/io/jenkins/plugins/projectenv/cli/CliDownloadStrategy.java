@@ -0,0 +1,28 @@
+package io.jenkins.plugins.projectenv.cli;
+
+public enum CliDownloadStrategy {
+
+    /**
+     * The agent downloads the CLI archive from GitHub itself.
+     */
+    DIRECT("Download on the agent"),
+    /**
+     * The controller downloads the CLI archive once and streams it to the agents.
+     */
+    CONTROLLER("Download on the controller and stream to the agent"),
+    /**
+     * The agent downloads the CLI archive from a mirror.
+     */
+    MIRROR("Download on the agent from a mirror");
+
+    private final String displayName;
+
+    CliDownloadStrategy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+}
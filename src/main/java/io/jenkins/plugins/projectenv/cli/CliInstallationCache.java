@@ -0,0 +1,152 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+import hudson.Util;
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import jenkins.util.SystemProperties;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Agent-level cache of extracted Project-Env CLI installations. Each installation lives in its own directory, named
+ * after the {@link CliArtifact#getCacheKey() cache key} of the artifact. Installations which have not been used for
+ * the longest time are evicted as soon as the cache exceeds its disk budget. Installations which are in use by the
+ * body of a running step are never evicted.
+ */
+public class CliInstallationCache {
+
+    static final String CACHE_DIRECTORY_NAME = "project-env-cli";
+    static final String STAGING_DIRECTORY_PREFIX = ".staging-";
+    static final String LAST_USED_MARKER_FILE_NAME = ".last-used";
+    static final String LOCK_KEY_PREFIX = "cli-";
+    static final String USERS_DIRECTORY_NAME = ".users";
+
+    private static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+    /**
+     * The disk budget of the cache, as configured on the controller.
+     */
+    public static final long MAX_SIZE = SystemProperties.getLong(CliInstallationCache.class.getName() + ".maxSize", DEFAULT_MAX_SIZE);
+
+    private final FilePath cacheDirectory;
+    private final long maxSize;
+    private final InstallLocks installLocks;
+
+    public CliInstallationCache(FilePath agentRootDirectory, long maxSize, InstallLocks installLocks) {
+        this.cacheDirectory = agentRootDirectory.child(CACHE_DIRECTORY_NAME);
+        this.maxSize = maxSize;
+        this.installLocks = installLocks;
+    }
+
+    public FilePath getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * @return the installation directory of the given artifact or {@code null}, if the artifact is not cached yet
+     */
+    public FilePath lookup(CliArtifact artifact) throws IOException, InterruptedException {
+        FilePath installationDirectory = getInstallationDirectory(artifact);
+        if (!installationDirectory.child(artifact.getExecutableName()).exists()) {
+            return null;
+        }
+
+        markAsUsed(installationDirectory);
+        return installationDirectory;
+    }
+
+    /**
+     * Returns the installation directory of the given artifact, installing it with the given installer if the
+     * artifact is not cached yet. Concurrent builds of the same agent install the same artifact only once.
+     */
+    public FilePath getOrInstall(CliArtifact artifact, CliInstaller installer) throws Exception {
+        FilePath installationDirectory = lookup(artifact);
+        if (installationDirectory != null) {
+            return installationDirectory;
+        }
+
+        try (InstallLock ignored = installLocks.acquire(LOCK_KEY_PREFIX + artifact.getCacheKey(), "Project-Env CLI " + artifact.version())) {
+            // another build might have installed the artifact while we were waiting for the lock
+            installationDirectory = lookup(artifact);
+            if (installationDirectory != null) {
+                return installationDirectory;
+            }
+
+            installationDirectory = install(artifact, installer);
+        }
+        evict(artifact);
+
+        return installationDirectory;
+    }
+
+    private FilePath install(CliArtifact artifact, CliInstaller installer) throws Exception {
+        FilePath installationDirectory = getInstallationDirectory(artifact);
+        FilePath stagingDirectory = cacheDirectory.child(STAGING_DIRECTORY_PREFIX + generateStagingDirectorySuffix());
+        try {
+            stagingDirectory.mkdirs();
+            installer.install(artifact, stagingDirectory);
+
+            FilePath executable = stagingDirectory.child(artifact.getExecutableName());
+            if (!executable.exists()) {
+                throw new IllegalStateException("could not find Project-Env CLI at " + executable);
+            }
+
+            markAsUsed(stagingDirectory);
+            moveIntoPlace(stagingDirectory, installationDirectory, artifact);
+        } finally {
+            stagingDirectory.deleteRecursive();
+        }
+
+        return installationDirectory;
+    }
+
+    private void moveIntoPlace(FilePath stagingDirectory, FilePath installationDirectory, CliArtifact artifact) throws IOException, InterruptedException {
+        try {
+            // a leftover of an interrupted installation would prevent the rename
+            if (installationDirectory.exists() && !installationDirectory.child(artifact.getExecutableName()).exists()) {
+                installationDirectory.deleteRecursive();
+            }
+            stagingDirectory.renameTo(installationDirectory);
+        } catch (IOException e) {
+            // another build installed the same artifact in the meantime
+            if (lookup(artifact) == null) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Marks the given installation as in use by the given user until it is {@link #release released}, so that it is
+     * not evicted in the meantime.
+     *
+     * @throws IllegalStateException if the installation has been evicted already
+     */
+    public static void retain(FilePath installationDirectory, String userId) throws IOException, InterruptedException {
+        installationDirectory.act(new CliInstallationUseCallable(userId, true));
+    }
+
+    /**
+     * Marks the given installation as no longer in use by the given user.
+     */
+    public static void release(FilePath installationDirectory, String userId) throws IOException, InterruptedException {
+        installationDirectory.act(new CliInstallationUseCallable(userId, false));
+    }
+
+    private void evict(CliArtifact retainedArtifact) throws IOException, InterruptedException {
+        cacheDirectory.act(new CliInstallationCacheEvictionCallable(maxSize, retainedArtifact.getCacheKey()));
+    }
+
+    private FilePath getInstallationDirectory(CliArtifact artifact) {
+        return cacheDirectory.child(artifact.getCacheKey());
+    }
+
+    private static void markAsUsed(FilePath installationDirectory) throws IOException, InterruptedException {
+        installationDirectory.child(LAST_USED_MARKER_FILE_NAME).touch(System.currentTimeMillis());
+    }
+
+    private static String generateStagingDirectorySuffix() {
+        return Util.getDigestOf(UUID.randomUUID().toString()).substring(0, 8);
+    }
+
+}
@@ -0,0 +1,127 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.remoting.VirtualChannel;
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Deletes the least recently used installations until the cache directory fits into the given disk budget. Returns
+ * the number of reclaimed bytes. Installations which are currently being (re-)installed by a build or which are in use
+ * by the body of a running step are skipped. Users which have not been released for a long time are left behind by
+ * builds which never completed (e.g. because the controller crashed) and are ignored.
+ */
+class CliInstallationCacheEvictionCallable extends MasterToSlaveFileCallable<Long> {
+
+    private static final Logger LOGGER = Logger.getLogger(CliInstallationCacheEvictionCallable.class.getName());
+
+    private static final long STALE_STAGING_DIRECTORY_AGE = TimeUnit.DAYS.toMillis(1);
+    private static final long STALE_USER_AGE = TimeUnit.DAYS.toMillis(7);
+
+    private final long maxSize;
+    private final String retainedCacheKey;
+
+    CliInstallationCacheEvictionCallable(long maxSize, String retainedCacheKey) {
+        this.maxSize = maxSize;
+        this.retainedCacheKey = retainedCacheKey;
+    }
+
+    @Override
+    public Long invoke(File cacheDirectory, VirtualChannel channel) throws IOException {
+        File[] entries = cacheDirectory.listFiles(File::isDirectory);
+        if (entries == null) {
+            return 0L;
+        }
+
+        long reclaimedBytes = 0;
+        long totalSize = 0;
+        List<CacheEntry> evictionCandidates = new ArrayList<>();
+        for (File entry : entries) {
+            long size = FileUtils.sizeOfDirectory(entry);
+            if (StringUtils.startsWith(entry.getName(), CliInstallationCache.STAGING_DIRECTORY_PREFIX)) {
+                if (System.currentTimeMillis() - entry.lastModified() > STALE_STAGING_DIRECTORY_AGE) {
+                    reclaimedBytes += delete(entry, size);
+                }
+                continue;
+            }
+
+            totalSize += size;
+            if (!StringUtils.equals(entry.getName(), retainedCacheKey)) {
+                evictionCandidates.add(new CacheEntry(entry, size, getLastUsed(entry)));
+            }
+        }
+
+        evictionCandidates.sort(Comparator.comparingLong(CacheEntry::lastUsed));
+        for (CacheEntry evictionCandidate : evictionCandidates) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+
+            long deletedBytes = evict(cacheDirectory, evictionCandidate);
+            totalSize -= deletedBytes;
+            reclaimedBytes += deletedBytes;
+        }
+
+        return reclaimedBytes;
+    }
+
+    private static long getLastUsed(File entry) {
+        File marker = new File(entry, CliInstallationCache.LAST_USED_MARKER_FILE_NAME);
+        return marker.exists() ? marker.lastModified() : entry.lastModified();
+    }
+
+    private static long evict(File cacheDirectory, CacheEntry cacheEntry) {
+        File directory = cacheEntry.directory();
+        String lockKey = CliInstallationCache.LOCK_KEY_PREFIX + directory.getName();
+        try (InstallLock installLock = InstallLocks.tryAcquireLocally(cacheDirectory.getParentFile(), lockKey)) {
+            // the installation might be replaced by a build right now
+            if (installLock == null || isInUse(directory)) {
+                return 0;
+            }
+
+            return delete(directory, cacheEntry.size());
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "failed to evict Project-Env CLI installation " + directory, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Has to be called within the install lock of the installation, since a build adds its user within the lock.
+     */
+    private static boolean isInUse(File directory) {
+        File[] users = new File(directory, CliInstallationCache.USERS_DIRECTORY_NAME).listFiles(File::isFile);
+        if (users == null) {
+            return false;
+        }
+
+        long releasedBefore = System.currentTimeMillis() - STALE_USER_AGE;
+        for (File user : users) {
+            if (user.lastModified() >= releasedBefore) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static long delete(File directory, long size) {
+        // the entry might still be in use by a running build (e.g. on Windows), so we simply try again next time
+        return FileUtils.deleteQuietly(directory) ? size : 0;
+    }
+
+    private record CacheEntry(File directory, long size, long lastUsed) {
+    }
+
+}
@@ -0,0 +1,48 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Releases the CLI installations {@link CliInstallationCache#retain retained} for the body of a step as soon as the
+ * body completes. Since the callback is persisted together with the body, it only holds the paths of the installations
+ * on the agent and resolves the agent from the context of the step.
+ */
+public class CliInstallationReleaseCallback extends BodyExecutionCallback.TailCall {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(CliInstallationReleaseCallback.class.getName());
+
+    private final String userId;
+    private final List<String> installationDirectories;
+
+    public CliInstallationReleaseCallback(String userId, List<String> installationDirectories) {
+        this.userId = userId;
+        this.installationDirectories = List.copyOf(installationDirectories);
+    }
+
+    @Override
+    protected void finished(StepContext context) {
+        try {
+            FilePath workspace = context.get(FilePath.class);
+            if (workspace == null || workspace.getChannel() == null) {
+                // the eviction ignores the user once it is stale
+                return;
+            }
+
+            for (String installationDirectory : installationDirectories) {
+                CliInstallationCache.release(new FilePath(workspace.getChannel(), installationDirectory), userId);
+            }
+        } catch (Exception e) {
+            // e.g. the agent went offline, which must not change the outcome of the body
+            LOGGER.log(Level.FINE, "failed to release Project-Env CLI installations " + installationDirectories, e);
+        }
+    }
+
+}
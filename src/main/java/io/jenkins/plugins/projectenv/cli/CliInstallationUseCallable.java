@@ -0,0 +1,58 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.remoting.VirtualChannel;
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Adds or removes a user (e.g. the body of a step having the installation on its PATH) of an installation. Runs within
+ * the install lock of the installation, so that the eviction either sees the user or has already deleted the
+ * installation, in which case adding the user fails.
+ */
+class CliInstallationUseCallable extends MasterToSlaveFileCallable<Void> {
+
+    private final String userId;
+    private final boolean inUse;
+
+    CliInstallationUseCallable(String userId, boolean inUse) {
+        this.userId = userId;
+        this.inUse = inUse;
+    }
+
+    @Override
+    public Void invoke(File installationDirectory, VirtualChannel channel) throws IOException, InterruptedException {
+        File agentRootDirectory = installationDirectory.getParentFile().getParentFile();
+        String lockKey = CliInstallationCache.LOCK_KEY_PREFIX + installationDirectory.getName();
+        try (InstallLock ignored = InstallLocks.acquireLocally(agentRootDirectory, lockKey)) {
+            File marker = new File(new File(installationDirectory, CliInstallationCache.USERS_DIRECTORY_NAME), userId);
+            if (inUse) {
+                if (!installationDirectory.isDirectory()) {
+                    throw new IllegalStateException("Project-Env CLI installation " + installationDirectory + " has been evicted in the meantime");
+                }
+
+                Files.createDirectories(marker.getParentFile().toPath());
+                Files.write(marker.toPath(), new byte[0]);
+            } else {
+                Files.deleteIfExists(marker.toPath());
+            }
+
+            // an installation is used for the last time when its last user is done with it
+            File lastUsedMarker = new File(installationDirectory, CliInstallationCache.LAST_USED_MARKER_FILE_NAME);
+            if (installationDirectory.isDirectory() && !lastUsedMarker.setLastModified(System.currentTimeMillis())) {
+                Files.write(lastUsedMarker.toPath(), new byte[0]);
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("failed to release install lock " + lockKey, e);
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,15 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+
+@FunctionalInterface
+public interface CliInstaller {
+
+    /**
+     * Installs the given Project-Env CLI artifact into the given (empty) target directory.
+     *
+     * @return the number of transferred bytes
+     */
+    long install(CliArtifact artifact, FilePath targetDirectory) throws Exception;
+
+}
@@ -0,0 +1,44 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import org.apache.commons.lang3.StringUtils;
+
+public final class CliInstallers {
+
+    private CliInstallers() {
+        // noop
+    }
+
+    public static CliInstaller create(CliDownloadStrategy downloadStrategy, String mirrorUrlTemplate) {
+        String agentDownloadUrlTemplate = getAgentDownloadUrlTemplate(downloadStrategy, mirrorUrlTemplate);
+        if (agentDownloadUrlTemplate == null) {
+            return new ControllerCliInstaller(CliArtifact.DEFAULT_DOWNLOAD_URL_TEMPLATE);
+        }
+
+        return createAgentInstaller(agentDownloadUrlTemplate);
+    }
+
+    /**
+     * Creates an installer which can also be used on the agent itself, as it downloads the archive on the agent.
+     */
+    public static CliInstaller createAgentInstaller(String downloadUrlTemplate) {
+        return new DirectCliInstaller(downloadUrlTemplate);
+    }
+
+    /**
+     * @return the URL template the agent downloads the archive from or {@code null}, if the archive is provided by
+     * the controller
+     */
+    public static String getAgentDownloadUrlTemplate(CliDownloadStrategy downloadStrategy, String mirrorUrlTemplate) {
+        return switch (downloadStrategy) {
+            case DIRECT -> CliArtifact.DEFAULT_DOWNLOAD_URL_TEMPLATE;
+            case CONTROLLER -> null;
+            case MIRROR -> {
+                if (StringUtils.isBlank(mirrorUrlTemplate)) {
+                    throw new IllegalArgumentException("download strategy " + downloadStrategy + " requires a mirror URL template");
+                }
+                yield mirrorUrlTemplate;
+            }
+        };
+    }
+
+}
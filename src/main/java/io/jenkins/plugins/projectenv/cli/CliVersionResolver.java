@@ -0,0 +1,198 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.util.SystemProperties;
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Controller-wide resolver of the latest Project-Env CLI version. Resolved versions are cached for a configurable time
+ * to live. Once expired, the cached version is still served while a single background refresh takes place, as long as
+ * the version is not older than the configured stale period. Concurrent callers resolving the same release URL share a
+ * single HTTP request.
+ */
+public class CliVersionResolver {
+
+    private static final Logger LOGGER = Logger.getLogger(CliVersionResolver.class.getName());
+
+    public static final String LATEST_RELEASE_URL = "https://github.com/Project-Env/project-env-cli/releases/latest";
+
+    private static final Pattern LATEST_CLI_VERSION_PATTERN = Pattern.compile(".+/v(.+)$");
+
+    private static final long TIME_TO_LIVE = SystemProperties.getLong(CliVersionResolver.class.getName() + ".timeToLive", TimeUnit.MINUTES.toMillis(30));
+    private static final long STALE_PERIOD = SystemProperties.getLong(CliVersionResolver.class.getName() + ".stalePeriod", TimeUnit.DAYS.toMillis(1));
+
+    private static final int HTTP_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+
+    private static final CliVersionResolver INSTANCE = new CliVersionResolver(TIME_TO_LIVE, STALE_PERIOD, System::currentTimeMillis);
+
+    private final long timeToLive;
+    private final long stalePeriod;
+    private final LongSupplier clock;
+
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService refreshExecutor;
+
+    private final ConcurrentMap<String, CachedVersion> cachedVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlightResolutions = new ConcurrentHashMap<>();
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong staleHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    CliVersionResolver(long timeToLive, long stalePeriod, LongSupplier clock) {
+        this.timeToLive = timeToLive;
+        this.stalePeriod = stalePeriod;
+        this.clock = clock;
+        this.httpClient = createHttpClient();
+        this.refreshExecutor = Executors.newCachedThreadPool(new NamingThreadFactory(new DaemonThreadFactory(), CliVersionResolver.class.getSimpleName()));
+    }
+
+    public static CliVersionResolver get() {
+        return INSTANCE;
+    }
+
+    public String resolveLatestVersion() {
+        return resolveLatestVersion(LATEST_RELEASE_URL);
+    }
+
+    public String resolveLatestVersion(String latestReleaseUrl) {
+        CachedVersion cachedVersion = cachedVersions.get(latestReleaseUrl);
+        if (cachedVersion != null) {
+            long age = clock.getAsLong() - cachedVersion.resolvedAt();
+            if (age < timeToLive) {
+                hitCount.incrementAndGet();
+                return cachedVersion.version();
+            }
+            if (age < timeToLive + stalePeriod) {
+                staleHitCount.incrementAndGet();
+                refreshAsync(latestReleaseUrl);
+                return cachedVersion.version();
+            }
+        }
+
+        missCount.incrementAndGet();
+        try {
+            return resolveSingleFlight(latestReleaseUrl).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private void refreshAsync(String latestReleaseUrl) {
+        if (!pendingRefreshes.add(latestReleaseUrl)) {
+            return;
+        }
+
+        refreshExecutor.execute(() -> {
+            try {
+                resolveSingleFlight(latestReleaseUrl).join();
+            } catch (CompletionException e) {
+                LOGGER.log(Level.WARNING, "failed to refresh latest Project-Env CLI version, keep serving cached version", e.getCause());
+            } finally {
+                pendingRefreshes.remove(latestReleaseUrl);
+            }
+        });
+    }
+
+    private CompletableFuture<String> resolveSingleFlight(String latestReleaseUrl) {
+        CompletableFuture<String> resolution = new CompletableFuture<>();
+        CompletableFuture<String> inFlightResolution = inFlightResolutions.putIfAbsent(latestReleaseUrl, resolution);
+        if (inFlightResolution != null) {
+            return inFlightResolution;
+        }
+
+        try {
+            String version = fetchLatestVersion(latestReleaseUrl);
+            cachedVersions.put(latestReleaseUrl, new CachedVersion(version, clock.getAsLong()));
+            resolution.complete(version);
+        } catch (RuntimeException e) {
+            resolution.completeExceptionally(e);
+        } finally {
+            inFlightResolutions.remove(latestReleaseUrl, resolution);
+        }
+
+        return resolution;
+    }
+
+    private String fetchLatestVersion(String latestReleaseUrl) {
+        HttpUriRequest request = RequestBuilder.get().setUri(latestReleaseUrl).build();
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != 302) {
+                throw new IllegalStateException("expected redirection, but got " + statusCode);
+            }
+
+            Header location = response.getFirstHeader("Location");
+            if (location == null) {
+                throw new IllegalStateException("no redirection location present");
+            }
+
+            Matcher matcher = LATEST_CLI_VERSION_PATTERN.matcher(location.getValue());
+            if (!matcher.find()) {
+                throw new IllegalStateException("failed to extract latest Project-Env CLI version from URL " + location.getValue());
+            }
+
+            return matcher.group(1);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to resolve latest Project-Env CLI version", e);
+        }
+    }
+
+    private static CloseableHttpClient createHttpClient() {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(HTTP_TIMEOUT)
+                .setConnectionRequestTimeout(HTTP_TIMEOUT)
+                .setSocketTimeout(HTTP_TIMEOUT)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(new PoolingHttpClientConnectionManager())
+                .setDefaultRequestConfig(requestConfig)
+                .disableRedirectHandling()
+                .build();
+    }
+
+    private record CachedVersion(String version, long resolvedAt) {
+    }
+
+}
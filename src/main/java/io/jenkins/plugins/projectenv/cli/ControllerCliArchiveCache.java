@@ -0,0 +1,68 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.ProxyConfiguration;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of Project-Env CLI archives within {@code JENKINS_HOME}. Every archive is downloaded only once by the
+ * controller, no matter how many agents request it at the same time.
+ */
+public class ControllerCliArchiveCache {
+
+    private static final ControllerCliArchiveCache INSTANCE = new ControllerCliArchiveCache();
+
+    private final ConcurrentMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    public static ControllerCliArchiveCache get() {
+        return INSTANCE;
+    }
+
+    public File getOrDownload(CliArtifact artifact, String downloadUrlTemplate) throws IOException, InterruptedException {
+        File archive = new File(getCacheDirectory(), artifact.getArchiveFileName());
+        if (archive.isFile()) {
+            return archive;
+        }
+
+        ReentrantLock lock = locks.computeIfAbsent(artifact.getCacheKey(), key -> new ReentrantLock());
+        // the build might be aborted while another build is downloading the same archive
+        lock.lockInterruptibly();
+        try {
+            if (!archive.isFile()) {
+                download(artifact.getDownloadUrl(downloadUrlTemplate), archive.toPath());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return archive;
+    }
+
+    private void download(String archiveUrl, Path target) throws IOException, InterruptedException {
+        Files.createDirectories(target.getParent());
+        Path temporaryTarget = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            ArchiveDownload download = new ArchiveDownload(archiveUrl, ProxyConfiguration::open, DownloadOptions.DEFAULT);
+            download.download(
+                    inputStream -> Files.copy(inputStream, temporaryTarget, StandardCopyOption.REPLACE_EXISTING),
+                    () -> Files.deleteIfExists(temporaryTarget));
+
+            Files.move(temporaryTarget, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryTarget);
+        }
+    }
+
+    private File getCacheDirectory() {
+        return new File(Jenkins.get().getRootDir(), "project-env/cli-archives");
+    }
+
+}
@@ -0,0 +1,35 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * Installs the CLI from the {@link ControllerCliArchiveCache}. The archive is streamed over the agent channel and
+ * extracted on the fly, so no intermediate archive file is written on the agent.
+ */
+class ControllerCliInstaller implements CliInstaller {
+
+    private final String downloadUrlTemplate;
+
+    ControllerCliInstaller(String downloadUrlTemplate) {
+        this.downloadUrlTemplate = downloadUrlTemplate;
+    }
+
+    @Override
+    public long install(CliArtifact artifact, FilePath targetDirectory) throws Exception {
+        File archive = ControllerCliArchiveCache.get().getOrDownload(artifact, downloadUrlTemplate);
+        try (InputStream inputStream = Files.newInputStream(archive.toPath())) {
+            if (artifact.isTarGzArchive()) {
+                targetDirectory.untarFrom(inputStream, FilePath.TarCompression.GZIP);
+            } else {
+                targetDirectory.unzipFrom(inputStream);
+            }
+        }
+
+        return archive.length();
+    }
+
+}
@@ -0,0 +1,22 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+
+/**
+ * Installs the CLI by downloading the archive directly on the agent.
+ */
+class DirectCliInstaller implements CliInstaller {
+
+    private final String downloadUrlTemplate;
+
+    DirectCliInstaller(String downloadUrlTemplate) {
+        this.downloadUrlTemplate = downloadUrlTemplate;
+    }
+
+    @Override
+    public long install(CliArtifact artifact, FilePath targetDirectory) throws Exception {
+        String archiveUrl = artifact.getDownloadUrl(downloadUrlTemplate);
+        return targetDirectory.act(new CliArchiveDownloadCallable(archiveUrl, artifact.isTarGzArchive(), DownloadOptions.DEFAULT));
+    }
+
+}
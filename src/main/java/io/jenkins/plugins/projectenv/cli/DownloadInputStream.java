@@ -0,0 +1,36 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Aborts the download as soon as the downloading thread is interrupted (e.g. because the build has been aborted),
+ * since reads from a {@link java.net.URLConnection} do not react to interrupts.
+ */
+class DownloadInputStream extends FilterInputStream {
+
+    DownloadInputStream(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkInterrupted();
+        return super.read();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        checkInterrupted();
+        return super.read(buffer, offset, length);
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("download has been interrupted");
+        }
+    }
+
+}
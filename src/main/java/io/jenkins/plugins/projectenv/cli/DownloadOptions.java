@@ -0,0 +1,27 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import jenkins.util.SystemProperties;
+
+import java.io.Serializable;
+
+/**
+ * @param maxAttempts          the number of attempts of a download, where every attempt may additionally resume a
+ *                             dropped transfer as often
+ * @param initialBackoffMillis the wait time before the first retry, which doubles with every further retry
+ * @param timeoutMillis        the connect and read timeout of a single request
+ */
+public record DownloadOptions(int maxAttempts, long initialBackoffMillis, int timeoutMillis) implements Serializable {
+
+    /**
+     * The download options, as configured on the controller.
+     */
+    public static final DownloadOptions DEFAULT = new DownloadOptions(
+            SystemProperties.getInteger(DownloadOptions.class.getName() + ".maxAttempts", 4),
+            SystemProperties.getLong(DownloadOptions.class.getName() + ".initialBackoff", 1000L),
+            SystemProperties.getInteger(DownloadOptions.class.getName() + ".timeout", 30_000));
+
+    long getBackoffMillis(int retry) {
+        return initialBackoffMillis << Math.min(retry - 1, 16);
+    }
+
+}
@@ -0,0 +1,186 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.Util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a download, which is resumed with a HTTP range request if the connection drops, and hashes it while
+ * streaming. If the server does not support range requests, the already received part is skipped instead.
+ */
+class ResumableInputStream extends InputStream {
+
+    private static final Logger LOGGER = Logger.getLogger(ResumableInputStream.class.getName());
+
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+
+    private final URL url;
+    private final ArchiveDownload.ConnectionOpener connectionOpener;
+    private final DownloadOptions options;
+    private final MessageDigest messageDigest;
+
+    private InputStream inputStream;
+    private long position;
+    private long expectedLength = -1;
+    private int resumes;
+
+    ResumableInputStream(URL url, ArchiveDownload.ConnectionOpener connectionOpener, DownloadOptions options) throws IOException {
+        this.url = url;
+        this.connectionOpener = connectionOpener;
+        this.options = options;
+        try {
+            this.messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        connect();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] buffer = new byte[1];
+        int read = read(buffer, 0, 1);
+        return read == -1 ? -1 : buffer[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        while (true) {
+            int read;
+            try {
+                read = inputStream.read(buffer, offset, length);
+            } catch (IOException e) {
+                if (isInterruption(e)) {
+                    throw e;
+                }
+
+                resume(e);
+                continue;
+            }
+
+            if (read == -1 && expectedLength != -1 && position < expectedLength) {
+                resume(new IOException("transfer ended after " + position + " of " + expectedLength + " bytes"));
+                continue;
+            }
+
+            if (read > 0) {
+                messageDigest.update(buffer, offset, read);
+                position += read;
+            }
+            return read;
+        }
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * Verifies the completely read download against the given SHA-256 checksum, if there is one.
+     */
+    void verify(String expectedChecksum) throws IOException {
+        if (expectedLength != -1 && position != expectedLength) {
+            throw new IOException("received " + position + " instead of " + expectedLength + " bytes from " + url);
+        }
+
+        String actualChecksum = Util.toHexString(messageDigest.digest());
+        if (expectedChecksum != null && !expectedChecksum.equals(actualChecksum)) {
+            throw new IOException("checksum mismatch of " + url + ": expected " + expectedChecksum + " but was " + actualChecksum);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    private void resume(IOException cause) throws IOException {
+        if (++resumes >= options.maxAttempts()) {
+            throw cause;
+        }
+
+        LOGGER.log(Level.FINE, "transfer of " + url + " dropped after " + position + " bytes, resuming", cause);
+        closeQuietly();
+        try {
+            Thread.sleep(options.getBackoffMillis(resumes));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("download has been interrupted");
+        }
+
+        try {
+            connect();
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            if (isInterruption(e)) {
+                throw e;
+            }
+
+            resume(e);
+        }
+    }
+
+    /**
+     * Tells whether the given exception has been caused by an interrupt of the reading thread, as opposed to a connect
+     * or read timeout, which is an {@link InterruptedIOException} as well but is worth retrying.
+     */
+    static boolean isInterruption(IOException e) {
+        return e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException);
+    }
+
+    private void connect() throws IOException {
+        URLConnection connection = connectionOpener.open(url);
+        connection.setConnectTimeout(options.timeoutMillis());
+        connection.setReadTimeout(options.timeoutMillis());
+        if (position > 0) {
+            connection.setRequestProperty("Range", "bytes=" + position + "-");
+        }
+
+        InputStream connectionInputStream = new DownloadInputStream(connection.getInputStream());
+        if (position == 0) {
+            expectedLength = connection.getContentLengthLong();
+        } else if (getResponseCode(connection) == HttpURLConnection.HTTP_PARTIAL) {
+            verifyContentRange(connection.getHeaderField("Content-Range"));
+        } else {
+            // the server ignored the range, so the part we already have is sent again
+            connectionInputStream.skipNBytes(position);
+        }
+
+        inputStream = connectionInputStream;
+    }
+
+    private void verifyContentRange(String contentRange) throws IOException {
+        Matcher matcher = contentRange != null ? CONTENT_RANGE_PATTERN.matcher(contentRange) : null;
+        if (matcher == null || !matcher.matches() || Long.parseLong(matcher.group(1)) != position) {
+            throw new IOException("unexpected content range " + contentRange + " when resuming " + url + " at " + position);
+        }
+    }
+
+    private static int getResponseCode(URLConnection connection) throws IOException {
+        return connection instanceof HttpURLConnection httpConnection ? httpConnection.getResponseCode() : -1;
+    }
+
+    private void closeQuietly() {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "failed to close dropped transfer of " + url, e);
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package io.jenkins.plugins.projectenv.config;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.util.FormValidation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.verb.POST;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Describes what is installed on agents matching a label as soon as they come online.
+ */
+public class PrewarmConfiguration extends AbstractDescribableImpl<PrewarmConfiguration> {
+
+    private final String label;
+    private String cliVersions;
+    private String referenceConfig;
+
+    @DataBoundConstructor
+    public PrewarmConfiguration(String label) {
+        this.label = StringUtils.trimToNull(label);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getCliVersions() {
+        return cliVersions;
+    }
+
+    @DataBoundSetter
+    public void setCliVersions(String cliVersions) {
+        this.cliVersions = StringUtils.trimToNull(cliVersions);
+    }
+
+    public String getReferenceConfig() {
+        return referenceConfig;
+    }
+
+    @DataBoundSetter
+    public void setReferenceConfig(String referenceConfig) {
+        this.referenceConfig = StringUtils.trimToNull(referenceConfig);
+    }
+
+    /**
+     * @return the configured CLI versions or an empty list, if the latest version should be used
+     */
+    public List<String> getCliVersionList() {
+        if (cliVersions == null) {
+            return List.of();
+        }
+
+        return Arrays.stream(cliVersions.split("[,\\s]+"))
+                .filter(StringUtils::isNotEmpty)
+                .toList();
+    }
+
+    public boolean matches(Node node) {
+        if (label == null) {
+            return true;
+        }
+
+        Label labelExpression = Jenkins.get().getLabel(label);
+        return labelExpression != null && labelExpression.matches(node);
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<PrewarmConfiguration> {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return "Agent prewarming";
+        }
+
+        @POST
+        public FormValidation doCheckLabel(@QueryParameter String value) {
+            // label expressions reveal the labels and nodes of the controller
+            Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+            if (StringUtils.isBlank(value)) {
+                return FormValidation.ok("Applies to all agents");
+            }
+
+            return Label.validateLabelExpression(value, null);
+        }
+
+    }
+
+}
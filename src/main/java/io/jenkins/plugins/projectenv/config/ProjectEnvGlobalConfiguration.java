@@ -0,0 +1,114 @@
+package io.jenkins.plugins.projectenv.config;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.util.ListBoxModel;
+import io.jenkins.plugins.projectenv.admission.InstallAdmission;
+import io.jenkins.plugins.projectenv.cli.CliDownloadStrategy;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Extension
+@Symbol("projectEnv")
+public class ProjectEnvGlobalConfiguration extends GlobalConfiguration {
+
+    private CliDownloadStrategy cliDownloadStrategy = CliDownloadStrategy.DIRECT;
+    private String cliMirrorUrlTemplate;
+    private int cliLogLineLimit;
+    private int maxConcurrentInstallations;
+    private int maxConcurrentInstallationsPerAgent;
+    private List<PrewarmConfiguration> prewarmConfigurations = new ArrayList<>();
+
+    public ProjectEnvGlobalConfiguration() {
+        load();
+    }
+
+    public static ProjectEnvGlobalConfiguration get() {
+        return ExtensionList.lookupSingleton(ProjectEnvGlobalConfiguration.class);
+    }
+
+    public CliDownloadStrategy getCliDownloadStrategy() {
+        return cliDownloadStrategy;
+    }
+
+    @DataBoundSetter
+    public void setCliDownloadStrategy(CliDownloadStrategy cliDownloadStrategy) {
+        this.cliDownloadStrategy = cliDownloadStrategy != null ? cliDownloadStrategy : CliDownloadStrategy.DIRECT;
+        save();
+    }
+
+    public String getCliMirrorUrlTemplate() {
+        return cliMirrorUrlTemplate;
+    }
+
+    @DataBoundSetter
+    public void setCliMirrorUrlTemplate(String cliMirrorUrlTemplate) {
+        this.cliMirrorUrlTemplate = cliMirrorUrlTemplate;
+        save();
+    }
+
+    public int getCliLogLineLimit() {
+        return cliLogLineLimit;
+    }
+
+    @DataBoundSetter
+    public void setCliLogLineLimit(int cliLogLineLimit) {
+        this.cliLogLineLimit = Math.max(cliLogLineLimit, 0);
+        save();
+    }
+
+    public int getMaxConcurrentInstallations() {
+        return maxConcurrentInstallations;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentInstallations(int maxConcurrentInstallations) {
+        this.maxConcurrentInstallations = Math.max(maxConcurrentInstallations, 0);
+        save();
+        InstallAdmission.get().limitsChanged();
+    }
+
+    public int getMaxConcurrentInstallationsPerAgent() {
+        return maxConcurrentInstallationsPerAgent;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentInstallationsPerAgent(int maxConcurrentInstallationsPerAgent) {
+        this.maxConcurrentInstallationsPerAgent = Math.max(maxConcurrentInstallationsPerAgent, 0);
+        save();
+        InstallAdmission.get().limitsChanged();
+    }
+
+    public List<PrewarmConfiguration> getPrewarmConfigurations() {
+        return prewarmConfigurations != null ? prewarmConfigurations : List.of();
+    }
+
+    @DataBoundSetter
+    public void setPrewarmConfigurations(List<PrewarmConfiguration> prewarmConfigurations) {
+        this.prewarmConfigurations = prewarmConfigurations != null ? new ArrayList<>(prewarmConfigurations) : new ArrayList<>();
+        save();
+    }
+
+    @Override
+    public boolean configure(StaplerRequest2 req, JSONObject json) throws FormException {
+        // the form does not submit the prewarm configurations at all if the last one has been removed
+        prewarmConfigurations = new ArrayList<>();
+        return super.configure(req, json);
+    }
+
+    public ListBoxModel doFillCliDownloadStrategyItems() {
+        ListBoxModel items = new ListBoxModel();
+        for (CliDownloadStrategy downloadStrategy : CliDownloadStrategy.values()) {
+            items.add(downloadStrategy.getDisplayName(), downloadStrategy.name());
+        }
+
+        return items;
+    }
+
+}
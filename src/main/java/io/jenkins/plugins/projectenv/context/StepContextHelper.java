@@ -4,8 +4,9 @@ import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Run;
 import hudson.model.TaskListener;
-import hudson.slaves.WorkspaceList;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 
 import java.util.Optional;
@@ -16,6 +17,14 @@ public class StepContextHelper {
         return getOrThrow(stepContext, Computer.class);
     }
 
+    public static FilePath getAgentRootDirectory(StepContext stepContext) throws Exception {
+        Node node = Optional.ofNullable(getComputer(stepContext).getNode())
+                .orElseThrow(() -> new IllegalStateException("failed to resolve Node from context"));
+
+        return Optional.ofNullable(node.getRootPath())
+                .orElseThrow(() -> new IllegalStateException("failed to resolve root directory of " + node.getDisplayName()));
+    }
+
     public static Launcher getLauncher(StepContext stepContext) throws Exception {
         return getOrThrow(stepContext, Launcher.class);
     }
@@ -24,12 +33,16 @@ public class StepContextHelper {
         return getOrThrow(stepContext, EnvVars.class);
     }
 
+    public static Run<?, ?> getRun(StepContext stepContext) throws Exception {
+        return getOrThrow(stepContext, Run.class);
+    }
+
     public static TaskListener getTaskListener(StepContext stepContext) throws Exception {
         return getOrThrow(stepContext, TaskListener.class);
     }
 
     public static FilePath getWorkspace(StepContext stepContext) throws Exception {
-        FilePath workspace = getOrThrow(stepContext, FilePath.class);
+        FilePath workspace = getWorkspacePath(stepContext);
         if (!workspace.exists()) {
             workspace.mkdirs();
         }
@@ -37,11 +50,11 @@ public class StepContextHelper {
         return workspace;
     }
 
-    public static FilePath getTemporaryDirectory(StepContext stepContext) throws Exception {
-        FilePath workspace = getWorkspace(stepContext);
-
-        return Optional.ofNullable(WorkspaceList.tempDir(workspace))
-                .orElseThrow(() -> new IllegalStateException("failed to resolve temporary directory from context"));
+    /**
+     * Returns the workspace without ensuring its existence, which would require a round trip to the agent.
+     */
+    public static FilePath getWorkspacePath(StepContext stepContext) throws Exception {
+        return getOrThrow(stepContext, FilePath.class);
     }
 
     private static <T> T getOrThrow(StepContext stepContext, Class<T> type) throws Exception {
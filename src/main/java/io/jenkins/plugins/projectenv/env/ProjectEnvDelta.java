@@ -0,0 +1,126 @@
+package io.jenkins.plugins.projectenv.env;
+
+import hudson.EnvVars;
+import hudson.Platform;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes Project-Env applies to the environment of the step body. The delta is computed once per step, so that
+ * applying it to the environment of every nested step only requires a single prepend to the {@code PATH} instead of
+ * one per path element.
+ * <p>
+ * The path elements are prepended in the order the Project-Env CLI reported them, so the tools and path elements
+ * declared first take precedence.
+ */
+public final class ProjectEnvDelta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PATH_VAR_NAME = "PATH";
+
+    private final List<String> pathElements;
+    private final String unixPathPrefix;
+    private final String windowsPathPrefix;
+    private final Map<String, String> environmentVariables;
+
+    private ProjectEnvDelta(List<String> pathElements, Map<String, String> environmentVariables) {
+        this.pathElements = Collections.unmodifiableList(pathElements);
+        this.unixPathPrefix = String.join(String.valueOf(Platform.UNIX.pathSeparator), pathElements);
+        this.windowsPathPrefix = String.join(String.valueOf(Platform.WINDOWS.pathSeparator), pathElements);
+        this.environmentVariables = Collections.unmodifiableMap(environmentVariables);
+    }
+
+    /**
+     * @param cliInstallationDirectory the directory of the installed Project-Env CLI or {@code null}, if the CLI was
+     *                                 resolved from the {@code PATH}
+     */
+    public static ProjectEnvDelta create(String cliInstallationDirectory, Map<String, List<ToolInfo>> allToolInfos) {
+        List<String> pathElements = new ArrayList<>();
+        Map<String, String> environmentVariables = new LinkedHashMap<>();
+
+        if (cliInstallationDirectory != null) {
+            pathElements.add(cliInstallationDirectory);
+        }
+        for (List<ToolInfo> toolInfos : allToolInfos.values()) {
+            for (ToolInfo toolInfo : toolInfos) {
+                pathElements.addAll(toolInfo.pathElements());
+                environmentVariables.putAll(toolInfo.environmentVariables());
+            }
+        }
+
+        return new ProjectEnvDelta(pathElements, environmentVariables);
+    }
+
+    /**
+     * Merges the deltas of several configurations into one. The path elements are prepended in the order of the
+     * deltas, so the configurations listed first take precedence, and every path element is only added once. An
+     * environment variable set to different values by several configurations gets the value of the configuration
+     * listed first.
+     *
+     * @param projectEnvDeltas the deltas by the name of their configuration, in the order of precedence
+     * @param conflicts        receives a description of every environment variable set to different values
+     */
+    public static ProjectEnvDelta merge(Map<String, ProjectEnvDelta> projectEnvDeltas, List<String> conflicts) {
+        Set<String> pathElements = new LinkedHashSet<>();
+        Map<String, String> environmentVariables = new LinkedHashMap<>();
+        Map<String, String> environmentVariableSources = new HashMap<>();
+
+        for (Map.Entry<String, ProjectEnvDelta> entry : projectEnvDeltas.entrySet()) {
+            pathElements.addAll(entry.getValue().pathElements);
+            for (Map.Entry<String, String> environmentVariable : entry.getValue().environmentVariables.entrySet()) {
+                String existingValue = environmentVariables.putIfAbsent(environmentVariable.getKey(), environmentVariable.getValue());
+                if (existingValue == null) {
+                    environmentVariableSources.put(environmentVariable.getKey(), entry.getKey());
+                } else if (!existingValue.equals(environmentVariable.getValue())) {
+                    conflicts.add(environmentVariable.getKey() + " is set to " + environmentVariable.getValue() + " by " + entry.getKey()
+                            + ", using " + existingValue + " of " + environmentVariableSources.get(environmentVariable.getKey()));
+                }
+            }
+        }
+
+        return new ProjectEnvDelta(new ArrayList<>(pathElements), environmentVariables);
+    }
+
+    public List<String> getPathElements() {
+        return pathElements;
+    }
+
+    public Map<String, String> getEnvironmentVariables() {
+        return environmentVariables;
+    }
+
+    /**
+     * Applies the delta with the same semantics as {@link EnvVars#overrideAll(Map)} with {@code PATH+XYZ} entries,
+     * using the path separator of the given environment's platform.
+     */
+    public void applyTo(EnvVars envVars) {
+        for (Map.Entry<String, String> entry : environmentVariables.entrySet()) {
+            envVars.override(entry.getKey(), entry.getValue());
+        }
+
+        if (!pathElements.isEmpty()) {
+            char pathSeparator = getPathSeparator(envVars);
+            String pathPrefix = pathSeparator == Platform.WINDOWS.pathSeparator ? windowsPathPrefix : unixPathPrefix;
+
+            String path = envVars.get(PATH_VAR_NAME);
+            envVars.put(PATH_VAR_NAME, path == null ? pathPrefix : pathPrefix + pathSeparator + path);
+        }
+    }
+
+    private static char getPathSeparator(EnvVars envVars) {
+        Platform platform = envVars.getPlatform();
+        return platform != null ? platform.pathSeparator : File.pathSeparatorChar;
+    }
+
+}
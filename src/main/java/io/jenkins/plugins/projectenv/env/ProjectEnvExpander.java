@@ -0,0 +1,26 @@
+package io.jenkins.plugins.projectenv.env;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.EnvVars;
+import org.jenkinsci.plugins.workflow.steps.EnvironmentExpander;
+
+/**
+ * Applies the Project-Env environment to every environment the step body uses. Since the expander is persisted
+ * together with the body, it only holds the precomputed {@link ProjectEnvDelta} and not the step execution.
+ */
+public class ProjectEnvExpander extends EnvironmentExpander {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ProjectEnvDelta projectEnvDelta;
+
+    public ProjectEnvExpander(ProjectEnvDelta projectEnvDelta) {
+        this.projectEnvDelta = projectEnvDelta;
+    }
+
+    @Override
+    public void expand(@NonNull EnvVars originalEnvVars) {
+        projectEnvDelta.applyTo(originalEnvVars);
+    }
+
+}
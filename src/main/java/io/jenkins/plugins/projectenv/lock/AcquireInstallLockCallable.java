@@ -0,0 +1,102 @@
+package io.jenkins.plugins.projectenv.lock;
+
+import hudson.remoting.Channel;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Acquires an install lock on the agent on behalf of the controller. The lock is held until it is released with
+ * {@link ReleaseInstallLockCallable} or the channel to the controller is closed.
+ */
+class AcquireInstallLockCallable extends MasterToSlaveFileCallable<AcquireInstallLockCallable.RemoteLease> {
+
+    private static final Logger LOGGER = Logger.getLogger(AcquireInstallLockCallable.class.getName());
+
+    private static final Map<String, HeldLease> HELD_LEASES = new HashMap<>();
+    /**
+     * Leases the controller stopped waiting for (e.g. because the build has been aborted), which are released as soon
+     * as they are acquired.
+     */
+    private static final Set<String> ABANDONED_LEASES = new HashSet<>();
+
+    private final String key;
+    private final String leaseId;
+
+    AcquireInstallLockCallable(String key, String leaseId) {
+        this.key = key;
+        this.leaseId = leaseId;
+    }
+
+    @Override
+    public RemoteLease invoke(File lockFile, VirtualChannel channel) throws IOException, InterruptedException {
+        InstallLockCoordinator.Lease lease = InstallLockCoordinator.acquire(lockFile, key);
+
+        Channel controllerChannel = Channel.current();
+        Channel.Listener channelListener = null;
+        if (controllerChannel != null) {
+            // the controller cannot release the lock anymore once the channel is closed
+            channelListener = new Channel.Listener() {
+                @Override
+                public void onClosed(Channel closedChannel, IOException cause) {
+                    release(leaseId, false);
+                }
+            };
+            controllerChannel.addListener(channelListener);
+        }
+        synchronized (HELD_LEASES) {
+            if (!ABANDONED_LEASES.remove(leaseId)) {
+                HELD_LEASES.put(leaseId, new HeldLease(lease, controllerChannel, channelListener));
+                return new RemoteLease(leaseId, lease.isContended());
+            }
+        }
+
+        if (controllerChannel != null) {
+            controllerChannel.removeListener(channelListener);
+        }
+        lease.release();
+        return new RemoteLease(leaseId, lease.isContended());
+    }
+
+    /**
+     * @param abandoned whether the lease might not have been acquired yet, in which case it is released as soon as it
+     *                  is acquired
+     */
+    static void release(String leaseId, boolean abandoned) {
+        HeldLease heldLease;
+        synchronized (HELD_LEASES) {
+            heldLease = HELD_LEASES.remove(leaseId);
+            if (heldLease == null) {
+                if (abandoned) {
+                    ABANDONED_LEASES.add(leaseId);
+                }
+                return;
+            }
+        }
+
+        if (heldLease.controllerChannel() != null) {
+            heldLease.controllerChannel().removeListener(heldLease.channelListener());
+        }
+        try {
+            heldLease.lease().release();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "failed to release install lock", e);
+        }
+    }
+
+    private record HeldLease(InstallLockCoordinator.Lease lease, Channel controllerChannel, Channel.Listener channelListener) {
+    }
+
+    record RemoteLease(String id, boolean contended) implements Serializable {
+    }
+
+}
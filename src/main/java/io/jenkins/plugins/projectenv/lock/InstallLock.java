@@ -0,0 +1,11 @@
+package io.jenkins.plugins.projectenv.lock;
+
+/**
+ * A held install lock, see {@link InstallLocks}.
+ */
+public interface InstallLock extends AutoCloseable {
+
+    @Override
+    void close() throws Exception;
+
+}
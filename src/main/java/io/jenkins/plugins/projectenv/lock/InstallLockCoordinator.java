@@ -0,0 +1,173 @@
+package io.jenkins.plugins.projectenv.lock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Coordinates the installations within the JVM of an agent. Since OS file locks are held per process, concurrent
+ * builds of the same agent are first serialized with an in-JVM lock, before the file lock serializes them with other
+ * processes sharing the same directory (e.g. the controller or another agent on the same host).
+ * <p>
+ * There is one in-JVM lock per key, which exists as long as someone holds or waits for it, so that only builds
+ * installing the same artifact wait for each other. The locks are not bound to a thread, so that a lock acquired by
+ * one remote call can be released by another one.
+ */
+final class InstallLockCoordinator {
+
+    private static final ConcurrentMap<String, KeyLock> KEY_LOCKS = new ConcurrentHashMap<>();
+
+    private InstallLockCoordinator() {
+        // noop
+    }
+
+    static Lease acquire(File lockFile, String key) throws IOException, InterruptedException {
+        KeyLock keyLock = KeyLock.reference(key);
+        boolean contended = !keyLock.semaphore.tryAcquire();
+        if (contended) {
+            try {
+                keyLock.semaphore.acquire();
+            } catch (InterruptedException e) {
+                keyLock.dereference();
+                throw e;
+            }
+        }
+
+        try {
+            Files.createDirectories(lockFile.toPath().getParent());
+            FileChannel fileChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                FileLock fileLock = fileChannel.tryLock();
+                if (fileLock == null) {
+                    contended = true;
+                    fileLock = fileChannel.lock();
+                }
+
+                return new Lease(keyLock, fileChannel, fileLock, contended);
+            } catch (IOException | RuntimeException e) {
+                fileChannel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            keyLock.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the lease or {@code null}, if the lock is currently held by someone else
+     */
+    static Lease tryAcquire(File lockFile, String key) throws IOException {
+        KeyLock keyLock = KeyLock.reference(key);
+        if (!keyLock.semaphore.tryAcquire()) {
+            keyLock.dereference();
+            return null;
+        }
+
+        try {
+            Files.createDirectories(lockFile.toPath().getParent());
+            FileChannel fileChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                FileLock fileLock = fileChannel.tryLock();
+                if (fileLock == null) {
+                    fileChannel.close();
+                    keyLock.release();
+                    return null;
+                }
+
+                return new Lease(keyLock, fileChannel, fileLock, false);
+            } catch (IOException | RuntimeException e) {
+                fileChannel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            keyLock.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return whether someone currently holds or waits for the lock of the given key
+     */
+    static boolean isInUse(String key) {
+        return KEY_LOCKS.containsKey(key);
+    }
+
+    /**
+     * The in-JVM lock of a key, which is removed as soon as the last one holding or waiting for it is done.
+     */
+    private static final class KeyLock {
+
+        private final String key;
+        private final Semaphore semaphore = new Semaphore(1, true);
+        // guarded by the map entry of the key
+        private int references;
+
+        private KeyLock(String key) {
+            this.key = key;
+        }
+
+        private static KeyLock reference(String key) {
+            return KEY_LOCKS.compute(key, (ignored, keyLock) -> {
+                KeyLock referencedKeyLock = keyLock != null ? keyLock : new KeyLock(key);
+                referencedKeyLock.references++;
+                return referencedKeyLock;
+            });
+        }
+
+        private void dereference() {
+            KEY_LOCKS.computeIfPresent(key, (ignored, keyLock) -> --keyLock.references == 0 ? null : keyLock);
+        }
+
+        private void release() {
+            semaphore.release();
+            dereference();
+        }
+
+    }
+
+    static final class Lease {
+
+        private final KeyLock keyLock;
+        private final FileChannel fileChannel;
+        private final FileLock fileLock;
+        private final boolean contended;
+        private boolean released;
+
+        private Lease(KeyLock keyLock, FileChannel fileChannel, FileLock fileLock, boolean contended) {
+            this.keyLock = keyLock;
+            this.fileChannel = fileChannel;
+            this.fileLock = fileLock;
+            this.contended = contended;
+        }
+
+        /**
+         * @return whether the lock was held by someone else, so that the acquisition had to wait
+         */
+        boolean isContended() {
+            return contended;
+        }
+
+        synchronized void release() throws IOException {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            try {
+                fileLock.release();
+                fileChannel.close();
+            } finally {
+                keyLock.release();
+            }
+        }
+
+    }
+
+}
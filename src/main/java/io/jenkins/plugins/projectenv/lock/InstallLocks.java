@@ -0,0 +1,114 @@
+package io.jenkins.plugins.projectenv.lock;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.projectenv.metrics.SetupCounter;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ensures that only one build of an agent installs the same artifact (e.g. a CLI version or the tools of a tools
+ * directory) at a time, while the others wait and reuse the result. The locks work the same whether the installation
+ * is done on the agent itself or remotely from the controller.
+ */
+public class InstallLocks {
+
+    private static final Logger LOGGER = Logger.getLogger(InstallLocks.class.getName());
+
+    static final String LOCK_DIRECTORY_NAME = "project-env-locks";
+    private static final String TOOLS_DIRECTORY_KEY_PREFIX = "tools-";
+
+    private final FilePath lockDirectory;
+    private final TaskListener listener;
+    private final SetupReport setupReport;
+
+    public InstallLocks(FilePath agentRootDirectory, TaskListener listener, SetupReport setupReport) {
+        this.lockDirectory = agentRootDirectory.child(LOCK_DIRECTORY_NAME);
+        this.listener = listener;
+        this.setupReport = setupReport;
+    }
+
+    /**
+     * @return the key of the lock guarding the installations into the given tools directory
+     */
+    public static String getToolsDirectoryKey(FilePath toolsDirectory) {
+        return TOOLS_DIRECTORY_KEY_PREFIX + Util.getDigestOf(toolsDirectory.getRemote());
+    }
+
+    /**
+     * Acquires the lock for the given key without waiting. Has to be called on the agent itself.
+     *
+     * @return the lock or {@code null}, if the lock is currently held by someone else
+     */
+    public static InstallLock tryAcquireLocally(File agentRootDirectory, String key) throws IOException {
+        InstallLockCoordinator.Lease lease = InstallLockCoordinator.tryAcquire(new File(new File(agentRootDirectory, LOCK_DIRECTORY_NAME), key + ".lock"), key);
+        return lease != null ? lease::release : null;
+    }
+
+    /**
+     * Acquires the lock for the given key, waiting for other builds of the agent holding it. Has to be called on the
+     * agent itself.
+     */
+    public static InstallLock acquireLocally(File agentRootDirectory, String key) throws IOException, InterruptedException {
+        InstallLockCoordinator.Lease lease = InstallLockCoordinator.acquire(new File(new File(agentRootDirectory, LOCK_DIRECTORY_NAME), key + ".lock"), key);
+        return lease::release;
+    }
+
+    /**
+     * Acquires the lock for the given key, waiting for other builds of the agent holding it.
+     *
+     * @param key         the key of the installed artifact, which has to be usable as file name
+     * @param description the description of the installed artifact for the build log
+     */
+    public InstallLock acquire(String key, String description) throws Exception {
+        FilePath lockFile = lockDirectory.child(key + ".lock");
+
+        long start = System.nanoTime();
+        InstallLock installLock;
+        boolean contended;
+        if (lockFile.isRemote()) {
+            String leaseId = UUID.randomUUID().toString();
+            AcquireInstallLockCallable.RemoteLease remoteLease;
+            try {
+                remoteLease = lockFile.act(new AcquireInstallLockCallable(key, leaseId));
+            } catch (InterruptedException e) {
+                // the agent might still acquire the lock after we stopped waiting for it
+                abandon(lockFile, leaseId);
+                throw e;
+            }
+            installLock = () -> lockFile.act(new ReleaseInstallLockCallable(remoteLease.id(), false));
+            contended = remoteLease.contended();
+        } else {
+            InstallLockCoordinator.Lease lease = InstallLockCoordinator.acquire(new File(lockFile.getRemote()), key);
+            installLock = lease::release;
+            contended = lease.isContended();
+        }
+
+        if (contended) {
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            setupReport.increment(SetupCounter.INSTALL_LOCK_WAITS, 1);
+            setupReport.increment(SetupCounter.INSTALL_LOCK_WAIT_MILLIS, waitedMillis);
+            listener.getLogger().println(String.format(Locale.ROOT, "Waited %.1f s for another build installing %s", waitedMillis / 1000.0, description));
+        }
+
+        return installLock;
+    }
+
+    private static void abandon(FilePath lockFile, String leaseId) {
+        try {
+            lockFile.act(new ReleaseInstallLockCallable(leaseId, true));
+        } catch (Exception e) {
+            // the lock is released at the latest when the channel is closed
+            LOGGER.log(Level.FINE, "failed to abandon install lock " + lockFile, e);
+        }
+    }
+
+}
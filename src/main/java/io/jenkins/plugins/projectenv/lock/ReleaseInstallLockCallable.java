@@ -0,0 +1,27 @@
+package io.jenkins.plugins.projectenv.lock;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+
+/**
+ * Releases an install lock acquired with {@link AcquireInstallLockCallable}.
+ */
+class ReleaseInstallLockCallable extends MasterToSlaveFileCallable<Void> {
+
+    private final String leaseId;
+    private final boolean abandoned;
+
+    ReleaseInstallLockCallable(String leaseId, boolean abandoned) {
+        this.leaseId = leaseId;
+        this.abandoned = abandoned;
+    }
+
+    @Override
+    public Void invoke(File lockFile, VirtualChannel channel) {
+        AcquireInstallLockCallable.release(leaseId, abandoned);
+        return null;
+    }
+
+}
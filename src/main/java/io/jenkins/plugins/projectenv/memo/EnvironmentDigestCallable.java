@@ -0,0 +1,55 @@
+package io.jenkins.plugins.projectenv.memo;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Computes the digest of a configuration file within the workspace, while verifying that the paths of an environment
+ * still exist, within a single round trip.
+ */
+public class EnvironmentDigestCallable extends MasterToSlaveFileCallable<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String configFile;
+    private final List<String> referencedPaths;
+
+    /**
+     * @param referencedPaths the paths which have to exist, relative to the workspace or absolute
+     */
+    public EnvironmentDigestCallable(String configFile, List<String> referencedPaths) {
+        this.configFile = configFile;
+        this.referencedPaths = List.copyOf(referencedPaths);
+    }
+
+    /**
+     * @return the digest of the configuration file or {@code null}, if the configuration file or any of the referenced
+     * paths does not exist
+     */
+    @Override
+    public String invoke(File workspace, VirtualChannel channel) throws IOException {
+        for (String referencedPath : referencedPaths) {
+            if (!resolve(workspace, referencedPath).exists()) {
+                return null;
+            }
+        }
+
+        File file = resolve(workspace, configFile);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        return Util.getDigestOf(file);
+    }
+
+    private static File resolve(File workspace, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(workspace, path);
+    }
+
+}
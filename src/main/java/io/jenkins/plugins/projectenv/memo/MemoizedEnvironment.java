@@ -0,0 +1,40 @@
+package io.jenkins.plugins.projectenv.memo;
+
+import io.jenkins.plugins.projectenv.prepare.PreparedEnvironment;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @param configDigest the digest of the configuration file the environment has been prepared for
+ */
+public record MemoizedEnvironment(String configDigest, PreparedEnvironment environment) {
+
+    /**
+     * @return the paths of the CLI and the tools, which have to exist for the environment to be reusable
+     */
+    public List<String> getReferencedPaths() {
+        List<String> paths = new ArrayList<>();
+        if (environment.cliInstallationDirectory() != null) {
+            paths.add(environment.cliInstallationDirectory());
+        }
+        if (environment.toolInfos() == null) {
+            return paths;
+        }
+
+        for (List<ToolInfo> toolInfos : environment.toolInfos().values()) {
+            for (ToolInfo toolInfo : toolInfos) {
+                if (toolInfo.primaryExecutable() != null) {
+                    paths.add(toolInfo.primaryExecutable());
+                }
+                if (toolInfo.pathElements() != null) {
+                    paths.addAll(toolInfo.pathElements());
+                }
+            }
+        }
+
+        return paths;
+    }
+
+}
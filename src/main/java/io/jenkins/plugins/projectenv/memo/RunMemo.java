@@ -0,0 +1,88 @@
+package io.jenkins.plugins.projectenv.memo;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the setup results of the {@code withProjectEnv} steps of a single build, so that parallel branches and
+ * stages do not resolve the same environment again. Steps asking for a result which is currently being computed by
+ * another step wait for that computation instead of starting their own. A failed computation (e.g. because its
+ * branch has been aborted) is not memoized, the waiting steps compute the result on their own instead.
+ */
+public class RunMemo {
+
+    private static final String CLI_VERSION_KEY = "cliVersion";
+
+    private final ConcurrentMap<String, CompletableFuture<String>> cliVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<MemoizedEnvironment>> environments = new ConcurrentHashMap<>();
+
+    /**
+     * @return the latest CLI version, which is resolved with the given resolution only once per build, so that all
+     * steps of the build use the same version
+     */
+    public CompletableFuture<String> getLatestCliVersion(Supplier<CompletableFuture<String>> resolution) {
+        return coalesce(cliVersions, CLI_VERSION_KEY, resolution);
+    }
+
+    /**
+     * @param key         the key of the environment, which has to identify the node, the workspace, the configuration
+     *                    file and everything else the environment depends on, apart from the configuration content
+     * @param validation  checks whether a memoized environment is still valid (e.g. the configuration file did not
+     *                    change and the tools still exist)
+     * @param preparation prepares the environment, if there is no valid memoized one
+     */
+    public CompletableFuture<MemoizedEnvironment> getEnvironment(String key, Function<MemoizedEnvironment, CompletableFuture<Boolean>> validation,
+                                                                 Supplier<CompletableFuture<MemoizedEnvironment>> preparation) {
+        CompletableFuture<MemoizedEnvironment> existing = environments.get(key);
+        if (existing == null) {
+            return coalesce(environments, key, preparation);
+        }
+
+        return existing
+                .thenCompose(environment -> validation.apply(environment).thenCompose(valid -> {
+                    if (valid) {
+                        return CompletableFuture.completedFuture(environment);
+                    }
+
+                    environments.remove(key, existing);
+                    return getEnvironment(key, validation, preparation);
+                }))
+                .exceptionallyCompose(failure -> {
+                    environments.remove(key, existing);
+                    return getEnvironment(key, validation, preparation);
+                });
+    }
+
+    private static <T> CompletableFuture<T> coalesce(ConcurrentMap<String, CompletableFuture<T>> results, String key, Supplier<CompletableFuture<T>> computation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T> existing = results.putIfAbsent(key, result);
+        if (existing != null) {
+            // the failure of another step must not fail this one
+            return existing.exceptionallyCompose(failure -> {
+                results.remove(key, existing);
+                return coalesce(results, key, computation);
+            });
+        }
+
+        CompletableFuture<T> computed;
+        try {
+            computed = computation.get();
+        } catch (RuntimeException e) {
+            computed = CompletableFuture.failedFuture(e);
+        }
+        computed.whenComplete((value, failure) -> {
+            if (failure != null) {
+                results.remove(key, result);
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        });
+
+        return result;
+    }
+
+}
@@ -0,0 +1,33 @@
+package io.jenkins.plugins.projectenv.memo;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the {@link RunMemo} of every running build, which is dropped as soon as the build has been finalized.
+ */
+@Extension
+public class RunMemoCache extends RunListener<Run<?, ?>> {
+
+    private final Map<String, RunMemo> runMemos = new ConcurrentHashMap<>();
+
+    public static RunMemoCache get() {
+        return ExtensionList.lookupSingleton(RunMemoCache.class);
+    }
+
+    public RunMemo getRunMemo(Run<?, ?> run) {
+        return runMemos.computeIfAbsent(run.getExternalizableId(), key -> new RunMemo());
+    }
+
+    @Override
+    public void onFinalized(@NonNull Run<?, ?> run) {
+        runMemos.remove(run.getExternalizableId());
+    }
+
+}
@@ -0,0 +1,52 @@
+package io.jenkins.plugins.projectenv.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with fixed, exponentially growing buckets.
+ */
+class DurationHistogram {
+
+    private static final long[] BUCKET_UPPER_BOUNDS = {10, 50, 100, 500, 1_000, 5_000, 10_000, 30_000, 60_000, 300_000, Long.MAX_VALUE};
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_UPPER_BOUNDS.length);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long durationMillis) {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS.length; i++) {
+            if (durationMillis <= BUCKET_UPPER_BOUNDS[i]) {
+                bucketCounts.incrementAndGet(i);
+                break;
+            }
+        }
+        count.incrementAndGet();
+        sum.addAndGet(durationMillis);
+        max.accumulateAndGet(durationMillis, Math::max);
+    }
+
+    /**
+     * @return the count, sum and maximum of all recorded durations as well as the cumulative count per bucket
+     * ({@code le_<upper bound>})
+     */
+    Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", count.get());
+        snapshot.put("sumMillis", sum.get());
+        snapshot.put("maxMillis", max.get());
+
+        long cumulativeCount = 0;
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS.length; i++) {
+            cumulativeCount += bucketCounts.get(i);
+            String upperBound = BUCKET_UPPER_BOUNDS[i] == Long.MAX_VALUE ? "inf" : Long.toString(BUCKET_UPPER_BOUNDS[i]);
+            snapshot.put("le_" + upperBound, cumulativeCount);
+        }
+
+        return snapshot;
+    }
+
+}
@@ -0,0 +1,131 @@
+package io.jenkins.plugins.projectenv.metrics;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Api;
+import hudson.model.RootAction;
+import io.jenkins.plugins.projectenv.cli.CliVersionResolver;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controller-wide aggregation of the {@link SetupReport}s of all builds since the controller has been started. The
+ * metrics can be exported through the remote API, e.g. {@code /project-env-metrics/api/json}.
+ */
+@Extension
+@ExportedBean
+public class ProjectEnvMetrics implements RootAction {
+
+    private final Map<SetupCounter, AtomicLong> counters = new EnumMap<>(SetupCounter.class);
+    private final Map<SetupPhase, DurationHistogram> phaseDurations = new EnumMap<>(SetupPhase.class);
+    private final DurationHistogram totalDurations = new DurationHistogram();
+    private final ConcurrentMap<String, DurationHistogram> cliRunDurationsByTool = new ConcurrentHashMap<>();
+    private final AtomicLong setups = new AtomicLong();
+
+    public ProjectEnvMetrics() {
+        for (SetupCounter counter : SetupCounter.values()) {
+            counters.put(counter, new AtomicLong());
+        }
+        for (SetupPhase phase : SetupPhase.values()) {
+            phaseDurations.put(phase, new DurationHistogram());
+        }
+    }
+
+    public static ProjectEnvMetrics get() {
+        return ExtensionList.lookupSingleton(ProjectEnvMetrics.class);
+    }
+
+    public void record(SetupReport report) {
+        setups.incrementAndGet();
+        report.getCounters().forEach((counter, value) -> counters.get(counter).addAndGet(value));
+        report.getDurations().forEach((phase, duration) -> phaseDurations.get(phase).record(duration));
+        totalDurations.record(report.getTotalDuration());
+
+        Long cliRunDuration = report.getDurations().get(SetupPhase.CLI_RUN);
+        if (cliRunDuration != null) {
+            // all tools are resolved by a single CLI run, so each tool is attributed with the duration of the whole run
+            for (String tool : report.getTools()) {
+                cliRunDurationsByTool.computeIfAbsent(tool, key -> new DurationHistogram()).record(cliRunDuration);
+            }
+        }
+    }
+
+    @Exported
+    public long getSetups() {
+        return setups.get();
+    }
+
+    @Exported
+    public Map<String, Long> getCounters() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        counters.forEach((counter, value) -> snapshot.put(counter.name(), value.get()));
+
+        return snapshot;
+    }
+
+    /**
+     * @return the cache statistics of the controller-wide {@link CliVersionResolver}, which resolves the latest CLI
+     * version independent of the steps
+     */
+    @Exported
+    public Map<String, Long> getCliVersionResolution() {
+        CliVersionResolver cliVersionResolver = CliVersionResolver.get();
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("hits", cliVersionResolver.getHitCount());
+        snapshot.put("staleHits", cliVersionResolver.getStaleHitCount());
+        snapshot.put("misses", cliVersionResolver.getMissCount());
+
+        return snapshot;
+    }
+
+    @Exported
+    public Map<String, Map<String, Long>> getPhaseDurations() {
+        Map<String, Map<String, Long>> snapshot = new LinkedHashMap<>();
+        phaseDurations.forEach((phase, histogram) -> snapshot.put(phase.name(), histogram.snapshot()));
+
+        return snapshot;
+    }
+
+    @Exported
+    public Map<String, Long> getTotalDurations() {
+        return totalDurations.snapshot();
+    }
+
+    @Exported
+    public Map<String, Map<String, Long>> getCliRunDurationsByTool() {
+        Map<String, Map<String, Long>> snapshot = new TreeMap<>();
+        cliRunDurationsByTool.forEach((tool, histogram) -> snapshot.put(tool, histogram.snapshot()));
+
+        return snapshot;
+    }
+
+    public Api getApi() {
+        Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+        return new Api(this);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Project-Env Metrics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "project-env-metrics";
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.jenkins.plugins.projectenv.metrics;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows the setup phase durations of all {@code withProjectEnv} steps of a build.
+ */
+public class ProjectEnvSetupAction implements RunAction2 {
+
+    private final List<StepSetup> steps = new ArrayList<>();
+
+    private transient Run<?, ?> run;
+
+    /**
+     * Adds the report of a step to the given run and persists it, so that it survives a restart of the controller.
+     */
+    public static void record(Run<?, ?> run, String stepId, String description, SetupReport report) throws IOException {
+        ProjectEnvSetupAction action;
+        synchronized (run) {
+            action = run.getAction(ProjectEnvSetupAction.class);
+            if (action == null) {
+                action = new ProjectEnvSetupAction();
+                run.addAction(action);
+            }
+        }
+
+        action.addStep(new StepSetup(stepId, description, report));
+        run.save();
+    }
+
+    private synchronized void addStep(StepSetup step) {
+        steps.add(step);
+    }
+
+    public synchronized List<StepSetup> getSteps() {
+        return List.copyOf(steps);
+    }
+
+    public long getTotalDuration() {
+        return getSteps().stream().mapToLong(step -> step.getReport().getTotalDuration()).sum();
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "symbol-timer-outline plugin-ionicons-api";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Project-Env Setup";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "project-env-setup";
+    }
+
+    public static class StepSetup {
+
+        private final String id;
+        private final String description;
+        private final SetupReport report;
+
+        StepSetup(String id, String description, SetupReport report) {
+            this.id = id;
+            this.description = description;
+            this.report = report;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public SetupReport getReport() {
+            return report;
+        }
+
+    }
+
+}
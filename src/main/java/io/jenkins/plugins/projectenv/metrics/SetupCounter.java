@@ -0,0 +1,29 @@
+package io.jenkins.plugins.projectenv.metrics;
+
+public enum SetupCounter {
+
+    CLI_CACHE_HITS("CLI cache hits"),
+    CLI_CACHE_MISSES("CLI cache misses"),
+    TOOL_INFO_CACHE_HITS("Tool info cache hits"),
+    TOOL_INFO_CACHE_MISSES("Tool info cache misses"),
+    REUSED_TOOLS("Unchanged tools reused from earlier CLI runs"),
+    TOOLS_SNAPSHOT_HITS("Tools snapshot hits"),
+    TOOLS_SNAPSHOT_MISSES("Tools snapshot misses"),
+    RUN_MEMO_HITS("Environments reused within the build"),
+    DOWNLOADED_BYTES("Downloaded bytes"),
+    INSTALL_LOCK_WAITS("Waits for installations of other builds"),
+    INSTALL_LOCK_WAIT_MILLIS("Wait time for installations of other builds (ms)"),
+    ADMISSION_WAITS("Waits for a free installation slot"),
+    ADMISSION_WAIT_MILLIS("Wait time for a free installation slot (ms)");
+
+    private final String displayName;
+
+    SetupCounter(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+}
@@ -0,0 +1,32 @@
+package io.jenkins.plugins.projectenv.metrics;
+
+public enum SetupPhase {
+
+    PREWARM_WAIT("Wait for agent prewarming"),
+    AGENT_PROBE("Agent probe"),
+    PATH_LOOKUP("PATH lookup"),
+    VERSION_RESOLUTION("CLI version resolution"),
+    /**
+     * Download and extraction of the CLI, which are done in a single pass.
+     */
+    CLI_INSTALLATION("CLI download and extraction"),
+    TOOLS_SNAPSHOT_RESTORE("Tools snapshot restore"),
+    TOOL_INFO_CACHE_LOOKUP("Tool info cache lookup"),
+    /**
+     * Run of the CLI, including the decoding of its output, which is done while the CLI is running.
+     */
+    CLI_RUN("CLI run and output parsing"),
+    POST_PROCESSING("Tool post-processing (e.g. Maven wrapper)"),
+    TOOLS_SNAPSHOT_SAVE("Tools snapshot save");
+
+    private final String displayName;
+
+    SetupPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.jenkins.plugins.projectenv.metrics;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the setup phases and counters of a single {@code withProjectEnv} step execution. Phases which are run
+ * on the agent are recorded there and {@link #merge(SetupReport) merged} into the report of the controller.
+ */
+public class SetupReport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<SetupPhase, Long> durations = new EnumMap<>(SetupPhase.class);
+    private final Map<SetupCounter, Long> counters = new EnumMap<>(SetupCounter.class);
+    private final List<String> tools = new ArrayList<>();
+    private long elapsedMillis;
+
+    @FunctionalInterface
+    public interface TimedBlock<T> {
+
+        T run() throws Exception;
+
+    }
+
+    public <T> T time(SetupPhase phase, TimedBlock<T> block) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return block.run();
+        } finally {
+            addDuration(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    public synchronized void addDuration(SetupPhase phase, long durationMillis) {
+        durations.merge(phase, durationMillis, Long::sum);
+    }
+
+    public synchronized void increment(SetupCounter counter, long delta) {
+        counters.merge(counter, delta, Long::sum);
+    }
+
+    public synchronized void addTools(Iterable<String> toolNames) {
+        for (String toolName : toolNames) {
+            if (!tools.contains(toolName)) {
+                tools.add(toolName);
+            }
+        }
+    }
+
+    public synchronized void merge(SetupReport other) {
+        other.getDurations().forEach(this::addDuration);
+        other.getCounters().forEach(this::increment);
+        addTools(other.getTools());
+    }
+
+    public synchronized Map<SetupPhase, Long> getDurations() {
+        return Collections.unmodifiableMap(new EnumMap<>(durations));
+    }
+
+    public synchronized Map<SetupCounter, Long> getCounters() {
+        return Collections.unmodifiableMap(new EnumMap<>(counters));
+    }
+
+    public synchronized List<String> getTools() {
+        return List.copyOf(tools);
+    }
+
+    /**
+     * Records the wall-clock duration of the setup, which is shorter than the sum of the phase durations as soon as
+     * phases run concurrently.
+     */
+    public synchronized void setElapsedDuration(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the wall-clock duration of the setup or the sum of all phase durations for reports without a wall-clock
+     * duration
+     */
+    public synchronized long getTotalDuration() {
+        if (elapsedMillis > 0) {
+            return elapsedMillis;
+        }
+
+        return durations.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+}
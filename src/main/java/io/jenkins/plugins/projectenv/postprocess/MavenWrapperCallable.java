@@ -0,0 +1,108 @@
+package io.jenkins.plugins.projectenv.postprocess;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Installs the Maven wrapper within a single round trip. The original executable is moved aside to {@code _mvn} and
+ * replaced with the wrapper calling it with the user settings file named by {@value #USER_SETTINGS_FILE_VAR_NAME}, if
+ * that is set. Since the wrapper does not depend on the workspace, it can be shared by the workspaces sharing the Maven
+ * installation. The wrapper carries a fingerprint of its content, so an already installed wrapper is left untouched,
+ * and an outdated one is replaced without touching the original executable again. Both files are written to a
+ * temporary file first and renamed into place, so that concurrent Maven runs never see a partially written file.
+ */
+class MavenWrapperCallable extends MasterToSlaveFileCallable<Boolean> {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String ORIGINAL_EXECUTABLE_PREFIX = "_";
+    static final String FINGERPRINT_PREFIX = "# Project-Env Maven wrapper ";
+    static final String USER_SETTINGS_FILE_VAR_NAME = "PROJECT_ENV_MAVEN_USER_SETTINGS_FILE";
+    /**
+     * Identifies the wrappers written before they carried a fingerprint.
+     */
+    private static final String LEGACY_WRAPPER_MARKER = "/_`basename \"$0\"`\"";
+    private static final int HEAD_LENGTH = 1024;
+
+    /**
+     * @return whether the wrapper has been (re-)written
+     */
+    @Override
+    public Boolean invoke(File executable, VirtualChannel channel) throws IOException {
+        String wrapperScript = generateWrapperScript();
+        String head = readHead(executable.toPath());
+        if (head.contains(FINGERPRINT_PREFIX + Util.getDigestOf(wrapperScript) + "\n")) {
+            return false;
+        }
+
+        Path originalExecutable = executable.toPath().resolveSibling(ORIGINAL_EXECUTABLE_PREFIX + executable.getName());
+        if (isWrapper(head)) {
+            // copying the outdated wrapper would overwrite the original executable
+            if (!Files.exists(originalExecutable)) {
+                throw new IllegalStateException("could not find original Maven executable at " + originalExecutable);
+            }
+        } else {
+            replaceAtomically(originalExecutable, temporaryFile -> Files.copy(executable.toPath(), temporaryFile,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES));
+        }
+
+        replaceAtomically(executable.toPath(), temporaryFile -> {
+            Files.writeString(temporaryFile, addFingerprint(wrapperScript), StandardCharsets.UTF_8);
+            Files.setPosixFilePermissions(temporaryFile, Files.getPosixFilePermissions(originalExecutable));
+        });
+
+        return true;
+    }
+
+    private static String generateWrapperScript() {
+        return "#!/bin/sh\n" +
+                "if [ -n \"$" + USER_SETTINGS_FILE_VAR_NAME + "\" ]; then\n" +
+                "  exec \"`dirname \"$0\"`/_`basename \"$0\"`\" -s \"$" + USER_SETTINGS_FILE_VAR_NAME + "\" \"$@\"\n" +
+                "fi\n" +
+                "exec \"`dirname \"$0\"`/_`basename \"$0\"`\" \"$@\"\n";
+    }
+
+    private static String addFingerprint(String wrapperScript) {
+        int firstLineEnd = wrapperScript.indexOf('\n') + 1;
+        return wrapperScript.substring(0, firstLineEnd)
+                + FINGERPRINT_PREFIX + Util.getDigestOf(wrapperScript) + "\n"
+                + wrapperScript.substring(firstLineEnd);
+    }
+
+    private static boolean isWrapper(String head) {
+        return head.contains(FINGERPRINT_PREFIX) || head.contains(LEGACY_WRAPPER_MARKER);
+    }
+
+    private static String readHead(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return new String(inputStream.readNBytes(HEAD_LENGTH), StandardCharsets.UTF_8);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileWriter {
+
+        void write(Path temporaryFile) throws IOException;
+
+    }
+
+    private static void replaceAtomically(Path target, FileWriter writer) throws IOException {
+        Path temporaryFile = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            writer.write(temporaryFile);
+            Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package io.jenkins.plugins.projectenv.postprocess;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the Maven executable with a wrapper passing the configured user settings file to Maven, since Maven does
+ * not pick up the user settings from an environment variable. The wrapper itself reads the path from an environment
+ * variable added to the tool info, so the same wrapper serves every workspace sharing the Maven installation (e.g.
+ * through the shared tools store), each with its own user settings file.
+ */
+class MavenWrapperPostProcessor implements ToolPostProcessor {
+
+    private static final String PROJECT_ENV_MAVEN_TOOL_NAME = "maven";
+    private static final String PROJECT_ENV_MAVEN_USER_SETTINGS_FILE = "userSettingsFile";
+
+    @Override
+    public boolean supports(String toolName, ToolInfo toolInfo, AgentInfo agentInfo) {
+        return StringUtils.equals(toolName, PROJECT_ENV_MAVEN_TOOL_NAME)
+                && toolInfo.unhandledProjectResources() != null
+                && toolInfo.unhandledProjectResources().get(PROJECT_ENV_MAVEN_USER_SETTINGS_FILE) != null
+                && agentInfo.operatingSystem() != OperatingSystem.WINDOWS;
+    }
+
+    @Override
+    public ToolInfo process(ToolInfo toolInfo, FilePath workspace) throws Exception {
+        workspace.child(toolInfo.primaryExecutable()).act(new MavenWrapperCallable());
+
+        Map<String, String> environmentVariables = new LinkedHashMap<>();
+        if (toolInfo.environmentVariables() != null) {
+            environmentVariables.putAll(toolInfo.environmentVariables());
+        }
+        String mavenUserSettingsPath = toolInfo.unhandledProjectResources().get(PROJECT_ENV_MAVEN_USER_SETTINGS_FILE);
+        environmentVariables.put(MavenWrapperCallable.USER_SETTINGS_FILE_VAR_NAME, mavenUserSettingsPath);
+
+        return new ToolInfo(toolInfo.primaryExecutable(), environmentVariables, toolInfo.pathElements(), toolInfo.unhandledProjectResources());
+    }
+
+}
@@ -0,0 +1,23 @@
+package io.jenkins.plugins.projectenv.postprocess;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+
+/**
+ * Handles a project resource the Project-Env CLI reports as unhandled (see {@link ToolInfo#unhandledProjectResources()})
+ * after the tool has been resolved. Post-processors run within the install lock of the tools directory, so they do not
+ * race with other builds installing the same tools, but they have to be idempotent, since the tools directory might
+ * have been post-processed by an earlier build already.
+ */
+public interface ToolPostProcessor {
+
+    boolean supports(String toolName, ToolInfo toolInfo, AgentInfo agentInfo);
+
+    /**
+     * @return the tool info to use from now on, e.g. with additional environment variables the post-processed tool
+     * depends on
+     */
+    ToolInfo process(ToolInfo toolInfo, FilePath workspace) throws Exception;
+
+}
@@ -0,0 +1,46 @@
+package io.jenkins.plugins.projectenv.postprocess;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ToolPostProcessors {
+
+    private static final List<ToolPostProcessor> POST_PROCESSORS = List.of(
+            new MavenWrapperPostProcessor()
+    );
+
+    private ToolPostProcessors() {
+        // noop
+    }
+
+    /**
+     * Runs the post-processors supporting the given tools.
+     *
+     * @return the tool infos as returned by the post-processors
+     */
+    public static Map<String, List<ToolInfo>> process(Map<String, List<ToolInfo>> allToolInfos, AgentInfo agentInfo, FilePath workspace) throws Exception {
+        Map<String, List<ToolInfo>> processedToolInfos = new LinkedHashMap<>();
+        for (Map.Entry<String, List<ToolInfo>> entry : allToolInfos.entrySet()) {
+            List<ToolInfo> processedToolInfosOfTool = new ArrayList<>();
+            for (ToolInfo toolInfo : entry.getValue()) {
+                ToolInfo processedToolInfo = toolInfo;
+                for (ToolPostProcessor postProcessor : POST_PROCESSORS) {
+                    if (postProcessor.supports(entry.getKey(), processedToolInfo, agentInfo)) {
+                        processedToolInfo = postProcessor.process(processedToolInfo, workspace);
+                    }
+                }
+                processedToolInfosOfTool.add(processedToolInfo);
+            }
+            processedToolInfos.put(entry.getKey(), processedToolInfosOfTool);
+        }
+
+        return processedToolInfos;
+    }
+
+}
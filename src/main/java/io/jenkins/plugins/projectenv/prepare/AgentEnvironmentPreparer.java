@@ -0,0 +1,93 @@
+package io.jenkins.plugins.projectenv.prepare;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import io.jenkins.plugins.projectenv.admission.InstallAdmission;
+import io.jenkins.plugins.projectenv.cli.CliArtifact;
+import io.jenkins.plugins.projectenv.cli.CliInstallationCache;
+import io.jenkins.plugins.projectenv.cli.CliInstaller;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import io.jenkins.plugins.projectenv.metrics.SetupCounter;
+import io.jenkins.plugins.projectenv.metrics.SetupPhase;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+
+/**
+ * Prepares the environment on the agent itself (see {@link PrepareEnvironmentCallable}). If something has to be
+ * downloaded or installed, the preparation has to be {@link #prepareAdmitted retried} as soon as the agent has been
+ * admitted by {@link InstallAdmission}, unless no limits are configured and the agent is admitted right away. If the
+ * CLI has to be provided by the controller, it is installed remotely before.
+ */
+public class AgentEnvironmentPreparer {
+
+    private final String nodeName;
+    private final VirtualChannel channel;
+    private final FilePath agentRootDirectory;
+    private final String workspace;
+    private final EnvVars envVars;
+    private final TaskListener listener;
+
+    public AgentEnvironmentPreparer(String nodeName, VirtualChannel channel, FilePath agentRootDirectory, String workspace, EnvVars envVars, TaskListener listener) {
+        this.nodeName = nodeName;
+        this.channel = channel;
+        this.agentRootDirectory = agentRootDirectory;
+        this.workspace = workspace;
+        this.envVars = envVars;
+        this.listener = listener;
+    }
+
+    /**
+     * @param setupReport the report the timings of the controller and the agent are merged into
+     * @return the prepared environment, which is incomplete if the agent has to be admitted first
+     */
+    public PreparedEnvironment prepare(PrepareRequest request, SetupReport setupReport) throws Exception {
+        // without limits, the round trip reporting the need for an admission can be saved
+        PrepareRequest initialRequest = InstallAdmission.get().isLimited() ? request : request.toBuilder().installationsAdmitted(true).build();
+        PreparedEnvironment preparedEnvironment = channel.call(createPrepareEnvironmentCallable(initialRequest));
+        setupReport.merge(preparedEnvironment.setupReport());
+
+        return preparedEnvironment;
+    }
+
+    /**
+     * Retries an incomplete preparation after the agent has been admitted.
+     *
+     * @param incompleteEnvironment  the environment returned by {@link #prepare(PrepareRequest, SetupReport)}
+     * @param controllerCliInstaller the installer used if the agent cannot install the CLI on its own
+     * @param setupReport            the report the timings of the controller and the agent are merged into
+     */
+    public PreparedEnvironment prepareAdmitted(PrepareRequest request, PreparedEnvironment incompleteEnvironment, CliInstaller controllerCliInstaller,
+                                               SetupReport setupReport) throws Exception {
+        if (incompleteEnvironment.missingCliArtifact() != null) {
+            // the CLI has to be provided by the controller, so we install it remotely
+            installCli(incompleteEnvironment.missingCliArtifact(), request, controllerCliInstaller, setupReport);
+        }
+
+        PrepareRequest retryRequest = request.toBuilder()
+                .agentInfo(incompleteEnvironment.agentInfo())
+                .cliPathLookup(incompleteEnvironment.cliPathLookup())
+                .installationsAdmitted(true)
+                .build();
+        PreparedEnvironment preparedEnvironment = channel.call(createPrepareEnvironmentCallable(retryRequest));
+        setupReport.merge(preparedEnvironment.setupReport());
+
+        return preparedEnvironment;
+    }
+
+    private void installCli(CliArtifact missingCliArtifact, PrepareRequest request, CliInstaller controllerCliInstaller, SetupReport setupReport) throws Exception {
+        CliInstallationCache cliInstallationCache = new CliInstallationCache(agentRootDirectory, request.cliCacheMaxSize(),
+                new InstallLocks(agentRootDirectory, listener, setupReport));
+        setupReport.increment(SetupCounter.CLI_CACHE_MISSES, 1);
+        setupReport.time(SetupPhase.CLI_INSTALLATION, () -> cliInstallationCache.getOrInstall(missingCliArtifact, (artifact, targetDirectory) -> {
+            long transferredBytes = controllerCliInstaller.install(artifact, targetDirectory);
+            setupReport.increment(SetupCounter.DOWNLOADED_BYTES, transferredBytes);
+            return transferredBytes;
+        }));
+    }
+
+    private PrepareEnvironmentCallable createPrepareEnvironmentCallable(PrepareRequest request) {
+        return new PrepareEnvironmentCallable(request, workspace, agentRootDirectory.getRemote(), envVars, listener);
+    }
+
+}
@@ -0,0 +1,340 @@
+package io.jenkins.plugins.projectenv.prepare;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.CliPathLookup;
+import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import io.jenkins.plugins.projectenv.cli.CliArtifact;
+import io.jenkins.plugins.projectenv.cli.CliInstallationCache;
+import io.jenkins.plugins.projectenv.cli.CliInstaller;
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import io.jenkins.plugins.projectenv.metrics.SetupCounter;
+import io.jenkins.plugins.projectenv.metrics.SetupPhase;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+import io.jenkins.plugins.projectenv.postprocess.ToolPostProcessors;
+import io.jenkins.plugins.projectenv.proc.ProcHelper;
+import io.jenkins.plugins.projectenv.proc.ProcResult;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoCache;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoIndex;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoParser;
+import io.jenkins.plugins.projectenv.tools.ProjectEnvConfigFiles;
+import io.jenkins.plugins.projectenv.tools.SharedToolsStore;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves or installs the Project-Env CLI and runs it. The preparer works on {@link FilePath}s and a
+ * {@link Launcher}, so the same logic is used on the agent itself (see {@link PrepareEnvironmentCallable}) and on the
+ * controller, operating on the agent remotely.
+ */
+public class EnvironmentPreparer {
+
+    private static final String DERIVED_CONFIG_FILE_PREFIX = ".project-env-derived-";
+
+    private final AgentInfo agentInfo;
+    private final Launcher launcher;
+    private final EnvVars envVars;
+    private final FilePath workspace;
+    private final FilePath agentRootDirectory;
+    private final TaskListener listener;
+    private final SetupReport setupReport;
+    private final InstallLocks installLocks;
+
+    public EnvironmentPreparer(AgentInfo agentInfo, Launcher launcher, EnvVars envVars, FilePath workspace, FilePath agentRootDirectory, TaskListener listener,
+                               SetupReport setupReport) {
+        this.agentInfo = agentInfo;
+        this.launcher = launcher;
+        this.envVars = envVars;
+        this.workspace = workspace;
+        this.agentRootDirectory = agentRootDirectory;
+        this.listener = listener;
+        this.setupReport = setupReport;
+        this.installLocks = new InstallLocks(agentRootDirectory, listener, setupReport);
+    }
+
+    /**
+     * @param cliInstaller the installer to use if the CLI is not installed yet or {@code null}, if the missing CLI
+     *                     should be reported back instead
+     */
+    public PreparedEnvironment prepare(PrepareRequest request, CliInstaller cliInstaller) throws Exception {
+        String cliInstallationDirectory = null;
+
+        CliPathLookup cliPathLookup = setupReport.time(SetupPhase.PATH_LOOKUP, () -> lookupProjectEnvCliExecutable(request.cliPathLookup()));
+        String executable = cliPathLookup.executable();
+        if (executable == null) {
+            if (request.cliVersion() == null) {
+                throw new IllegalStateException("could not resolve Project-Env CLI version");
+            }
+
+            CliArtifact cliArtifact = new CliArtifact(request.cliVersion(), agentInfo.operatingSystem(), agentInfo.architecture());
+            CliInstallationCache cliInstallationCache = new CliInstallationCache(agentRootDirectory, request.cliCacheMaxSize(), installLocks);
+
+            FilePath installationDirectory = cliInstallationCache.lookup(cliArtifact);
+            if (installationDirectory == null) {
+                if (cliInstaller == null) {
+                    return PreparedEnvironment.builder()
+                            .agentInfo(agentInfo)
+                            .cliPathLookup(cliPathLookup)
+                            .missingCliArtifact(cliArtifact)
+                            .setupReport(setupReport)
+                            .build();
+                }
+                if (!request.installationsAdmitted()) {
+                    return createAdmissionRequiredEnvironment(cliPathLookup);
+                }
+
+                setupReport.increment(SetupCounter.CLI_CACHE_MISSES, 1);
+                installationDirectory = setupReport.time(SetupPhase.CLI_INSTALLATION,
+                        () -> cliInstallationCache.getOrInstall(cliArtifact, createMeasuringCliInstaller(cliInstaller)));
+            } else {
+                setupReport.increment(SetupCounter.CLI_CACHE_HITS, 1);
+            }
+
+            executable = installationDirectory.child(cliArtifact.getExecutableName()).getRemote();
+            cliInstallationDirectory = installationDirectory.getRemote();
+        }
+
+        Map<String, List<ToolInfo>> allToolInfos = resolveToolInfos(executable, request);
+        if (allToolInfos == null) {
+            return createAdmissionRequiredEnvironment(cliPathLookup);
+        }
+        setupReport.addTools(allToolInfos.keySet());
+
+        return PreparedEnvironment.builder()
+                .agentInfo(agentInfo)
+                .cliPathLookup(cliPathLookup)
+                .cliInstallationDirectory(cliInstallationDirectory)
+                .toolInfos(allToolInfos)
+                .setupReport(setupReport)
+                .build();
+    }
+
+    private PreparedEnvironment createAdmissionRequiredEnvironment(CliPathLookup cliPathLookup) {
+        return PreparedEnvironment.builder()
+                .agentInfo(agentInfo)
+                .cliPathLookup(cliPathLookup)
+                .admissionRequired(true)
+                .setupReport(setupReport)
+                .build();
+    }
+
+    private CliInstaller createMeasuringCliInstaller(CliInstaller cliInstaller) {
+        return (artifact, targetDirectory) -> {
+            long transferredBytes = cliInstaller.install(artifact, targetDirectory);
+            setupReport.increment(SetupCounter.DOWNLOADED_BYTES, transferredBytes);
+            return transferredBytes;
+        };
+    }
+
+    /**
+     * @return the tool infos or {@code null}, if the CLI has to be run but installations have not been admitted yet
+     */
+    private Map<String, List<ToolInfo>> resolveToolInfos(String executable, PrepareRequest request) throws Exception {
+        FilePath configFile = workspace.child(request.configFile());
+        if (!configFile.exists()) {
+            // let the CLI report the missing configuration file
+            return setupReport.time(SetupPhase.CLI_RUN, () -> executeProjectEnvCli(executable, request, request.configFile()));
+        }
+
+        FilePath configDirectory = configFile.getParent() != null ? configFile.getParent() : workspace;
+        String configContent = configFile.readToString();
+        String derivedConfigContent = null;
+        SharedToolsStore sharedToolsStore = null;
+        if (request.sharedTools()) {
+            String workspaceToolsDirectory = ProjectEnvConfigFiles.findToolsDirectory(configContent);
+            if (workspaceToolsDirectory != null) {
+                sharedToolsStore = new SharedToolsStore(agentRootDirectory, request.sharedToolsMaxSize());
+                FilePath entry = sharedToolsStore.getEntry(ProjectEnvConfigFiles.computeToolsKey(configContent, agentInfo));
+                sharedToolsStore.link(workspace, configDirectory, workspaceToolsDirectory, entry, installLocks);
+
+                derivedConfigContent = ProjectEnvConfigFiles.withToolsDirectory(configContent, entry.getRemote());
+            } else {
+                listener.getLogger().println("Project-Env configuration does not contain a tools_directory, not using the shared tools store");
+            }
+        }
+        if (request.tools() != null) {
+            derivedConfigContent = ProjectEnvConfigFiles.withTools(derivedConfigContent != null ? derivedConfigContent : configContent,
+                    selectTools(request, configContent));
+        }
+        String effectiveConfigContent = derivedConfigContent != null ? derivedConfigContent : configContent;
+        String cliConfigContent = derivedConfigContent;
+
+        String cliIdentity = getCliIdentity(executable);
+        ToolInfoCache toolInfoCache = new ToolInfoCache(agentRootDirectory, workspace);
+        ToolInfoIndex toolInfoIndex = new ToolInfoIndex(toolInfoCache, request.configFile(), effectiveConfigContent, cliIdentity, agentInfo, workspace);
+        String cacheKey = ToolInfoCache.computeKey(request.configFile(), effectiveConfigContent, cliIdentity, agentInfo, workspace);
+        Map<String, List<ToolInfo>> unchangedToolInfos = Map.of();
+        if (!request.forceRefresh()) {
+            Map<String, List<ToolInfo>> cachedToolInfos = setupReport.time(SetupPhase.TOOL_INFO_CACHE_LOOKUP, () -> toolInfoCache.lookup(cacheKey));
+            if (cachedToolInfos != null) {
+                setupReport.increment(SetupCounter.TOOL_INFO_CACHE_HITS, 1);
+                listener.getLogger().println("Project-Env configuration and tools are unchanged, skipping Project-Env CLI");
+                return cachedToolInfos;
+            }
+
+            unchangedToolInfos = setupReport.time(SetupPhase.TOOL_INFO_CACHE_LOOKUP, toolInfoIndex::lookupUnchangedTools);
+            if (!toolInfoIndex.getTools().isEmpty() && unchangedToolInfos.keySet().containsAll(toolInfoIndex.getTools())) {
+                // e.g. a tool has been removed from the configuration
+                Map<String, List<ToolInfo>> mergedToolInfos = toolInfoIndex.merge(unchangedToolInfos, Map.of());
+                toolInfoCache.store(cacheKey, mergedToolInfos);
+                setupReport.increment(SetupCounter.TOOL_INFO_CACHE_HITS, 1);
+                listener.getLogger().println("Project-Env tools are unchanged, skipping Project-Env CLI");
+                return mergedToolInfos;
+            }
+        }
+        if (!request.installationsAdmitted()) {
+            return null;
+        }
+        setupReport.increment(SetupCounter.TOOL_INFO_CACHE_MISSES, 1);
+
+        // builds sharing the tools directory would otherwise race within the installations of the CLI
+        Map<String, List<ToolInfo>> allToolInfos;
+        try (InstallLock ignored = installLocks.acquire(InstallLocks.getToolsDirectoryKey(resolveToolsDirectory(configDirectory, effectiveConfigContent)), "Project-Env tools")) {
+            if (!request.forceRefresh()) {
+                // another build might have installed the same tools while we were waiting for the lock
+                Map<String, List<ToolInfo>> cachedToolInfos = toolInfoCache.lookup(cacheKey);
+                if (cachedToolInfos != null) {
+                    return cachedToolInfos;
+                }
+            }
+
+            // only the tools whose configuration changed are resolved again
+            Map<String, List<ToolInfo>> reusedToolInfos = unchangedToolInfos;
+            String changedConfigContent = cliConfigContent;
+            if (!reusedToolInfos.isEmpty()) {
+                List<String> changedTools = toolInfoIndex.getTools().stream().filter(tool -> !reusedToolInfos.containsKey(tool)).toList();
+                listener.getLogger().println("Project-Env tools " + reusedToolInfos.keySet() + " are unchanged, resolving " + changedTools + " only");
+                setupReport.increment(SetupCounter.REUSED_TOOLS, reusedToolInfos.size());
+                changedConfigContent = ProjectEnvConfigFiles.withTools(effectiveConfigContent, changedTools);
+            }
+
+            String effectiveCliConfigContent = changedConfigContent;
+            Map<String, List<ToolInfo>> cliToolInfos = setupReport.time(SetupPhase.CLI_RUN, () -> executeProjectEnvCli(executable, request, configFile, effectiveCliConfigContent));
+            Map<String, List<ToolInfo>> resolvedToolInfos = setupReport.time(SetupPhase.POST_PROCESSING,
+                    () -> ToolPostProcessors.process(cliToolInfos, agentInfo, workspace));
+
+            allToolInfos = toolInfoIndex.merge(reusedToolInfos, resolvedToolInfos);
+            toolInfoCache.store(cacheKey, allToolInfos);
+            toolInfoIndex.store(resolvedToolInfos);
+        }
+
+        if (sharedToolsStore != null) {
+            sharedToolsStore.collectGarbage();
+        }
+
+        return allToolInfos;
+    }
+
+    private List<String> selectTools(PrepareRequest request, String configContent) {
+        Set<String> missingTools = new LinkedHashSet<>(request.tools());
+        missingTools.removeAll(ProjectEnvConfigFiles.findTools(configContent));
+        if (!missingTools.isEmpty()) {
+            throw new IllegalStateException("Project-Env configuration " + request.configFile() + " does not contain the tools " + missingTools);
+        }
+
+        listener.getLogger().println("Resolving the Project-Env tools " + request.tools() + " only");
+        return request.tools();
+    }
+
+    /**
+     * @return the tools directory configured in the given configuration or the directory of the configuration file,
+     * if the tools directory cannot be determined
+     */
+    private FilePath resolveToolsDirectory(FilePath configDirectory, String configContent) {
+        String toolsDirectory = ProjectEnvConfigFiles.findToolsDirectory(configContent);
+        if (toolsDirectory == null) {
+            return configDirectory;
+        }
+
+        // relative tools directories are resolved against the configuration file, absolute ones are taken as is
+        return configDirectory.child(toolsDirectory);
+    }
+
+    private String getCliIdentity(String executable) throws Exception {
+        return executable + "@" + workspace.child(executable).lastModified();
+    }
+
+    private CliPathLookup lookupProjectEnvCliExecutable(CliPathLookup cachedCliPathLookup) throws Exception {
+        // a CLI resolved by a previous step is only reused as long as it still exists
+        if (cachedCliPathLookup != null && (!cachedCliPathLookup.isFound() || workspace.child(cachedCliPathLookup.executable()).exists())) {
+            return cachedCliPathLookup;
+        }
+
+        return new CliPathLookup(resolveProjectEnvCliExecutableFromPath());
+    }
+
+    private String resolveProjectEnvCliExecutableFromPath() throws Exception {
+        String[] commands = getExecutablePathResolveCommand();
+
+        String stdOut = StringUtils.trimToNull(ProcHelper.executeAndGetStdOut(launcher, envVars, workspace, listener, commands));
+        if (stdOut == null) {
+            return null;
+        }
+
+        return stdOut.split(agentInfo.lineSeparator())[0];
+    }
+
+    private String[] getExecutablePathResolveCommand() {
+        String executable = CliArtifact.getExecutableName(agentInfo.operatingSystem());
+        if (agentInfo.operatingSystem() == OperatingSystem.WINDOWS) {
+            return new String[]{"where", executable};
+        } else {
+            return new String[]{"/bin/sh", "-c", "which " + executable};
+        }
+    }
+
+    /**
+     * @param derivedConfigContent the configuration the CLI should be run with instead of the configuration file or
+     *                             {@code null}, if the configuration file should be used as is
+     */
+    private Map<String, List<ToolInfo>> executeProjectEnvCli(String executable, PrepareRequest request, FilePath configFile, String derivedConfigContent) throws Exception {
+        FilePath configDirectory = configFile.getParent();
+        if (derivedConfigContent == null || configDirectory == null) {
+            return executeProjectEnvCli(executable, request, request.configFile());
+        }
+
+        // the derived configuration lives next to the original one, so that relative paths resolve the same way
+        FilePath derivedConfigFile = configDirectory.child(DERIVED_CONFIG_FILE_PREFIX + configFile.getName());
+        try {
+            derivedConfigFile.write(derivedConfigContent, StandardCharsets.UTF_8.name());
+            return executeProjectEnvCli(executable, request, derivedConfigFile.getRemote());
+        } finally {
+            if (!request.skipCleanup()) {
+                derivedConfigFile.delete();
+            }
+        }
+    }
+
+    private Map<String, List<ToolInfo>> executeProjectEnvCli(String executable, PrepareRequest request, String configFile) throws Exception {
+        String[] commands = createProjectEnvCliCommand(executable, request, configFile);
+        ProcResult<Map<String, List<ToolInfo>>> procResult = ProcHelper.execute(launcher, envVars, workspace, listener, request.cliLogLineLimit(), ToolInfoParser::fromJson, commands);
+        if (procResult.exitCode() != 0) {
+            throw new IllegalStateException("received non-zero exit code " + procResult.exitCode() + " from Project-Env CLI");
+        }
+
+        return procResult.stdOutput();
+    }
+
+    private String[] createProjectEnvCliCommand(String executable, PrepareRequest request, String configFile) {
+        List<String> command = new ArrayList<>();
+        command.add(executable);
+        command.add("--config-file=" + configFile);
+        if (request.cliDebug()) {
+            command.add("--debug");
+        }
+
+        return command.toArray(new String[0]);
+    }
+
+}
@@ -0,0 +1,63 @@
+package io.jenkins.plugins.projectenv.prepare;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.AgentInfoCallable;
+import io.jenkins.plugins.projectenv.cli.CliInstaller;
+import io.jenkins.plugins.projectenv.cli.CliInstallers;
+import io.jenkins.plugins.projectenv.metrics.SetupPhase;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+import jenkins.agents.ControllerToAgentCallable;
+
+import java.io.File;
+
+/**
+ * Prepares the Project-Env environment within a single round trip to the agent: detects the agent, resolves or
+ * installs the CLI, runs it and returns the parsed tool infos.
+ */
+public class PrepareEnvironmentCallable implements ControllerToAgentCallable<PreparedEnvironment, Exception> {
+
+    private final PrepareRequest request;
+    private final String workspace;
+    private final String agentRootDirectory;
+    private final EnvVars envVars;
+    private final TaskListener listener;
+
+    public PrepareEnvironmentCallable(PrepareRequest request, String workspace, String agentRootDirectory, EnvVars envVars, TaskListener listener) {
+        this.request = request;
+        this.workspace = workspace;
+        this.agentRootDirectory = agentRootDirectory;
+        this.envVars = envVars;
+        this.listener = listener;
+    }
+
+    @Override
+    public PreparedEnvironment call() throws Exception {
+        SetupReport setupReport = new SetupReport();
+        AgentInfo agentInfo = request.agentInfo();
+        if (agentInfo == null) {
+            agentInfo = setupReport.time(SetupPhase.AGENT_PROBE, () -> new AgentInfoCallable().call());
+        }
+
+        FilePath workspaceDirectory = new FilePath(new File(workspace));
+        workspaceDirectory.mkdirs();
+
+        EnvironmentPreparer preparer = new EnvironmentPreparer(
+                agentInfo,
+                new Launcher.LocalLauncher(listener),
+                envVars,
+                workspaceDirectory,
+                new FilePath(new File(agentRootDirectory)),
+                listener,
+                setupReport);
+
+        CliInstaller cliInstaller = request.agentDownloadUrlTemplate() != null ?
+                CliInstallers.createAgentInstaller(request.agentDownloadUrlTemplate()) : null;
+
+        return preparer.prepare(request, cliInstaller);
+    }
+
+}
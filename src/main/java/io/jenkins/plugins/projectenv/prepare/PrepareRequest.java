@@ -0,0 +1,47 @@
+package io.jenkins.plugins.projectenv.prepare;
+
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.CliPathLookup;
+import lombok.Builder;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Everything the agent needs to know to prepare the Project-Env environment on its own.
+ *
+ * @param cliVersion               the CLI version to install, if the CLI cannot be resolved through {@code PATH}
+ * @param agentDownloadUrlTemplate the URL template the agent downloads the CLI from or {@code null}, if the CLI
+ *                                 archive is provided by the controller
+ * @param cliLogLineLimit          the maximum number of CLI output lines written to the build log, or {@code 0} for
+ *                                 no limit
+ * @param forceRefresh             whether the CLI should be run even if cached tool infos are available
+ * @param skipCleanup              whether the derived configuration files should be kept after the CLI run
+ * @param sharedTools              whether the tools should be installed into the shared tools store of the agent
+ * @param tools                    the names of the tools to resolve or {@code null}, if all tools of the
+ *                                 configuration should be resolved
+ * @param agentInfo                the agent info known from previous steps or {@code null}, if the agent has to be
+ *                                 probed
+ * @param cliPathLookup            the CLI resolved through {@code PATH} by previous steps or {@code null}, if the
+ *                                 CLI has to be resolved
+ * @param installationsAdmitted    whether the controller admitted downloads and installations, otherwise the need for
+ *                                 them is reported back
+ */
+@Builder(toBuilder = true)
+public record PrepareRequest(
+        String cliVersion,
+        boolean cliDebug,
+        String configFile,
+        String agentDownloadUrlTemplate,
+        long cliCacheMaxSize,
+        int cliLogLineLimit,
+        boolean forceRefresh,
+        boolean skipCleanup,
+        boolean sharedTools,
+        long sharedToolsMaxSize,
+        List<String> tools,
+        AgentInfo agentInfo,
+        CliPathLookup cliPathLookup,
+        boolean installationsAdmitted
+) implements Serializable {
+}
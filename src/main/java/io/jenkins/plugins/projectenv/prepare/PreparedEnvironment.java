@@ -0,0 +1,38 @@
+package io.jenkins.plugins.projectenv.prepare;
+
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.CliPathLookup;
+import io.jenkins.plugins.projectenv.cli.CliArtifact;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import lombok.Builder;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param cliInstallationDirectory the directory containing the installed CLI or {@code null}, if the CLI has been
+ *                                 resolved through {@code PATH}
+ * @param missingCliArtifact       the CLI artifact which has to be provided by the controller before the preparation
+ *                                 can be completed or {@code null}, if the preparation has been completed
+ * @param cliPathLookup            the result of resolving the CLI through {@code PATH}
+ * @param admissionRequired        whether the preparation has to download or install something, which requires the
+ *                                 admission of the controller
+ */
+@Builder
+public record PreparedEnvironment(
+        AgentInfo agentInfo,
+        CliPathLookup cliPathLookup,
+        String cliInstallationDirectory,
+        Map<String, List<ToolInfo>> toolInfos,
+        CliArtifact missingCliArtifact,
+        boolean admissionRequired,
+        SetupReport setupReport
+) implements Serializable {
+
+    public boolean isComplete() {
+        return missingCliArtifact == null && !admissionRequired;
+    }
+
+}
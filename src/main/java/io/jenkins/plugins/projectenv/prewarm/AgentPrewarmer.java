@@ -0,0 +1,236 @@
+package io.jenkins.plugins.projectenv.prewarm;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import io.jenkins.plugins.projectenv.admission.InstallAdmission;
+import io.jenkins.plugins.projectenv.admission.InstallPermit;
+import io.jenkins.plugins.projectenv.agent.AgentFacts;
+import io.jenkins.plugins.projectenv.agent.AgentFactsCache;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.AgentInfoCallable;
+import io.jenkins.plugins.projectenv.cli.CliArtifact;
+import io.jenkins.plugins.projectenv.cli.CliInstallationCache;
+import io.jenkins.plugins.projectenv.cli.CliInstaller;
+import io.jenkins.plugins.projectenv.cli.CliInstallers;
+import io.jenkins.plugins.projectenv.cli.CliVersionResolver;
+import io.jenkins.plugins.projectenv.config.PrewarmConfiguration;
+import io.jenkins.plugins.projectenv.config.ProjectEnvGlobalConfiguration;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+import io.jenkins.plugins.projectenv.prepare.AgentEnvironmentPreparer;
+import io.jenkins.plugins.projectenv.prepare.PrepareRequest;
+import io.jenkins.plugins.projectenv.prepare.PreparedEnvironment;
+import io.jenkins.plugins.projectenv.tools.ProjectEnvConfigFiles;
+import io.jenkins.plugins.projectenv.tools.SharedToolsStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Installs the Project-Env CLI and the tools of the reference configurations on matching agents as soon as they come
+ * online, so that the first step on the agent finds everything installed already. The tools are installed into the
+ * {@link SharedToolsStore}, where they are found by all steps using the shared tools store with the same configuration.
+ */
+@Extension
+public class AgentPrewarmer extends ComputerListener {
+
+    private static final Logger LOGGER = Logger.getLogger(AgentPrewarmer.class.getName());
+
+    private static final String PREWARM_DIRECTORY_NAME = "project-env-prewarm";
+    private static final String REFERENCE_CONFIG_FILE_NAME = "project-env.toml";
+    private static final String REFERENCE_TOOLS_DIRECTORY = ".tools";
+
+    @Override
+    public void onOnline(Computer computer, TaskListener listener) {
+        Node node = computer.getNode();
+        if (node == null) {
+            return;
+        }
+
+        List<PrewarmConfiguration> prewarmConfigurations = ProjectEnvGlobalConfiguration.get().getPrewarmConfigurations().stream()
+                .filter(prewarmConfiguration -> prewarmConfiguration.matches(node))
+                .toList();
+        if (prewarmConfigurations.isEmpty()) {
+            return;
+        }
+
+        AgentFacts agentFacts = AgentFactsCache.get().getAgentFacts(computer);
+        agentFacts.setPrewarm(prewarm(computer, agentFacts, prewarmConfigurations, listener));
+    }
+
+    /**
+     * Prewarms the given configurations one after the other. Waiting for an admission does not occupy a thread.
+     */
+    private CompletableFuture<Void> prewarm(Computer computer, AgentFacts agentFacts, List<PrewarmConfiguration> prewarmConfigurations, TaskListener listener) {
+        CompletableFuture<Void> prewarm = CompletableFuture.completedFuture(null);
+        for (PrewarmConfiguration prewarmConfiguration : prewarmConfigurations) {
+            prewarm = prewarm.thenCompose(ignored -> composeAsync(() -> prewarm(computer, agentFacts, prewarmConfiguration, listener)));
+        }
+
+        CompletableFuture<Void> cleanup = prewarm.thenCompose(ignored -> supplyAsync(() -> {
+            deleteObsoleteReferenceWorkspaces(computer, prewarmConfigurations);
+            return null;
+        }));
+        return cleanup.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (!(cause instanceof InterruptedException)) {
+                // a failed prewarming only slows down the steps, so they should not fail because of it
+                LOGGER.log(Level.WARNING, "failed to prewarm agent " + computer.getName() + " for Project-Env", cause);
+                listener.getLogger().println("Failed to prewarm agent for Project-Env: " + cause.getMessage());
+            }
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> prewarm(Computer computer, AgentFacts agentFacts, PrewarmConfiguration prewarmConfiguration, TaskListener listener) throws Exception {
+        VirtualChannel channel = computer.getChannel();
+        Node node = computer.getNode();
+        FilePath agentRootDirectory = node != null ? node.getRootPath() : null;
+        if (channel == null || agentRootDirectory == null) {
+            throw new IllegalStateException("agent went offline");
+        }
+
+        AgentInfo agentInfo = agentFacts.getAgentInfo();
+        if (agentInfo == null) {
+            agentInfo = channel.call(new AgentInfoCallable());
+            agentFacts.setAgentInfo(agentInfo);
+        }
+
+        ProjectEnvGlobalConfiguration globalConfiguration = ProjectEnvGlobalConfiguration.get();
+        CliInstaller cliInstaller = CliInstallers.create(globalConfiguration.getCliDownloadStrategy(), globalConfiguration.getCliMirrorUrlTemplate());
+        CliInstallationCache cliInstallationCache = new CliInstallationCache(agentRootDirectory, CliInstallationCache.MAX_SIZE,
+                new InstallLocks(agentRootDirectory, listener, new SetupReport()));
+
+        List<String> cliVersions = prewarmConfiguration.getCliVersionList();
+        if (cliVersions.isEmpty()) {
+            cliVersions = List.of(CliVersionResolver.get().resolveLatestVersion());
+        }
+        CompletableFuture<Void> prewarm = CompletableFuture.completedFuture(null);
+        for (String cliVersion : cliVersions) {
+            CliArtifact cliArtifact = new CliArtifact(cliVersion, agentInfo.operatingSystem(), agentInfo.architecture());
+            prewarm = prewarm.thenCompose(ignored -> composeAsync(() -> {
+                listener.getLogger().println("Prewarming Project-Env CLI " + cliVersion);
+                if (cliInstallationCache.lookup(cliArtifact) != null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+
+                return whenAdmitted(computer, listener, () -> {
+                    cliInstallationCache.getOrInstall(cliArtifact, cliInstaller);
+                    return null;
+                });
+            }));
+        }
+
+        String referenceConfig = prewarmConfiguration.getReferenceConfig();
+        if (referenceConfig == null) {
+            return prewarm;
+        }
+
+        String referenceCliVersion = cliVersions.get(0);
+        AgentInfo referenceAgentInfo = agentInfo;
+        return prewarm.thenCompose(ignored -> composeAsync(() -> {
+            listener.getLogger().println("Prewarming Project-Env tools of reference configuration");
+
+            // the shared tools store ignores the tools directory, so the tools are found by the steps regardless of theirs
+            FilePath workspace = agentRootDirectory.child(PREWARM_DIRECTORY_NAME).child(Util.getDigestOf(referenceConfig));
+            workspace.child(REFERENCE_CONFIG_FILE_NAME).write(ProjectEnvConfigFiles.withToolsDirectory(referenceConfig, REFERENCE_TOOLS_DIRECTORY),
+                    StandardCharsets.UTF_8.name());
+
+            PrepareRequest request = PrepareRequest.builder()
+                    .cliVersion(referenceCliVersion)
+                    .configFile(REFERENCE_CONFIG_FILE_NAME)
+                    .agentDownloadUrlTemplate(CliInstallers.getAgentDownloadUrlTemplate(globalConfiguration.getCliDownloadStrategy(), globalConfiguration.getCliMirrorUrlTemplate()))
+                    .cliCacheMaxSize(CliInstallationCache.MAX_SIZE)
+                    .cliLogLineLimit(globalConfiguration.getCliLogLineLimit())
+                    .sharedTools(true)
+                    .sharedToolsMaxSize(SharedToolsStore.MAX_SIZE)
+                    .agentInfo(referenceAgentInfo)
+                    .build();
+
+            AgentEnvironmentPreparer preparer = new AgentEnvironmentPreparer(computer.getName(), channel, agentRootDirectory, workspace.getRemote(),
+                    computer.buildEnvironment(listener), listener);
+            PreparedEnvironment environment = preparer.prepare(request, new SetupReport());
+            if (environment.isComplete()) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return whenAdmitted(computer, listener, () -> {
+                preparer.prepareAdmitted(request, environment, cliInstaller, new SetupReport());
+                return null;
+            });
+        }));
+    }
+
+    /**
+     * Runs the given installation as soon as the agent has been admitted by {@link InstallAdmission}.
+     */
+    private static CompletableFuture<Void> whenAdmitted(Computer computer, TaskListener listener, Callable<Void> installation) {
+        return InstallAdmission.get().acquire(computer.getName(), listener, new SetupReport())
+                .thenCompose(permit -> supplyAsync(() -> {
+                    try (InstallPermit ignored = permit) {
+                        return installation.call();
+                    }
+                }));
+    }
+
+    private static <T> CompletableFuture<T> composeAsync(Callable<CompletableFuture<T>> task) {
+        return supplyAsync(task).thenCompose(Function.identity());
+    }
+
+    private static <T> CompletableFuture<T> supplyAsync(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, Computer.threadPoolForRemoting);
+    }
+
+    /**
+     * The reference workspaces keep their entries of the shared tools store referenced, so the ones of reference
+     * configurations which are no longer configured have to be deleted to let the entries be garbage collected.
+     */
+    private void deleteObsoleteReferenceWorkspaces(Computer computer, List<PrewarmConfiguration> prewarmConfigurations) throws IOException, InterruptedException {
+        Node node = computer.getNode();
+        FilePath agentRootDirectory = node != null ? node.getRootPath() : null;
+        if (agentRootDirectory == null) {
+            return;
+        }
+
+        FilePath prewarmDirectory = agentRootDirectory.child(PREWARM_DIRECTORY_NAME);
+        if (!prewarmDirectory.exists()) {
+            return;
+        }
+
+        Set<String> referenceConfigDigests = prewarmConfigurations.stream()
+                .map(PrewarmConfiguration::getReferenceConfig)
+                .filter(Objects::nonNull)
+                .map(Util::getDigestOf)
+                .collect(Collectors.toSet());
+        for (FilePath workspace : prewarmDirectory.listDirectories()) {
+            if (!referenceConfigDigests.contains(workspace.getName())) {
+                workspace.deleteRecursive();
+            }
+        }
+    }
+
+}
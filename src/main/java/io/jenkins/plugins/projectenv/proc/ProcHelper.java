@@ -1,22 +1,44 @@
 package io.jenkins.plugins.projectenv.proc;
 
-import hudson.Launcher.ProcStarter;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
 import hudson.Proc;
-import io.jenkins.plugins.projectenv.context.StepContextHelper;
-import org.jenkinsci.plugins.workflow.steps.StepContext;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 
-import java.io.*;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public final class ProcHelper {
 
+    private static final Logger LOGGER = Logger.getLogger(ProcHelper.class.getName());
+
+    private static final long INTERRUPT_POLL_INTERVAL_MILLIS = 100;
+
+    /**
+     * A single thread for all processes, which kills the process of a thread interrupted while reading its output.
+     */
+    private static final ScheduledExecutorService INTERRUPT_WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), ProcHelper.class.getSimpleName()));
+
     private ProcHelper() {
         // noop
     }
 
-    public static String executeAndGetStdOut(StepContext context, String... commands) throws Exception {
-        ProcResult procResult = execute(context, commands);
+    public static String executeAndGetStdOut(Launcher launcher, EnvVars envVars, FilePath pwd, TaskListener listener, String... commands) throws Exception {
+        ProcResult<String> procResult = execute(launcher, envVars, pwd, listener, commands);
         if (procResult.exitCode() == 0) {
             return procResult.stdOutput();
         } else {
@@ -24,50 +46,100 @@ public final class ProcHelper {
         }
     }
 
-    public static ProcResult execute(StepContext context, String... commands) throws Exception {
-        try (ByteArrayOutputStream stdOutInputStream = new ByteArrayOutputStream()) {
-
-            ProcStarter procStarter = StepContextHelper.getLauncher(context)
-                    .launch()
-                    .cmds(commands)
-                    .envs(StepContextHelper.getEnvVars(context))
-                    .pwd(StepContextHelper.getWorkspace(context));
+    public static ProcResult<String> execute(Launcher launcher, EnvVars envVars, FilePath pwd, TaskListener listener, String... commands) throws Exception {
+        return execute(launcher, envVars, pwd, listener, 0, stdOut -> new String(stdOut.readAllBytes(), StandardCharsets.UTF_8), commands);
+    }
 
-            Thread stdErrThread;
-            int exitCode;
-            try (PipedInputStream stdErrInputStream = new PipedInputStream();
-                 BufferedOutputStream stdErrOutputStream = new BufferedOutputStream(new PipedOutputStream(stdErrInputStream))) {
+    /**
+     * Executes the given commands and decodes the standard output with the given reader while the process is running.
+     * If the reader fails and the process exits with a non-zero exit code, the failure is not propagated, but a result
+     * without standard output is returned.
+     *
+     * @param stdErrLineLimit the maximum number of standard error lines forwarded to the listener, or {@code 0} to
+     *                        forward all lines
+     */
+    public static <T> ProcResult<T> execute(Launcher launcher, EnvVars envVars, FilePath pwd, TaskListener listener, int stdErrLineLimit,
+                                            StdOutReader<T> stdOutReader, String... commands) throws Exception {
+        Proc process = launcher
+                .launch()
+                .cmds(commands)
+                .envs(envVars)
+                .pwd(pwd)
+                .readStdout()
+                .readStderr()
+                .start();
 
-                Proc process = procStarter
-                        .stdout(stdOutInputStream)
-                        .stderr(stdErrOutputStream)
-                        .start();
+        Future<?> stdErrPump = StdErrPump.start(process.getStderr(), listener.getLogger(), stdErrLineLimit);
 
-                stdErrThread = attachStdErrLoggingThread(stdErrInputStream, context);
-                exitCode = process.join();
+        int exitCode;
+        T decodedStdOutput = null;
+        Exception stdOutReaderFailure = null;
+        // the standard output is read by this thread, which is therefore unable to kill the process itself as soon as
+        // it gets interrupted (e.g. because the build has been aborted) while waiting for output
+        try (InterruptWatch ignored = watchForInterrupt(Thread.currentThread(), process)) {
+            try {
+                decodedStdOutput = readStdOut(process, stdOutReader);
+            } catch (Exception e) {
+                stdOutReaderFailure = e;
+            }
+            if (Thread.interrupted() || stdOutReaderFailure instanceof InterruptedException
+                    || stdOutReaderFailure instanceof InterruptedIOException) {
+                throw new InterruptedException("process has been killed due to an interrupt");
             }
-            stdErrThread.join();
 
-            return ProcResult.builder()
-                    .exitCode(exitCode)
-                    .stdOutput(stdOutInputStream.toString(StandardCharsets.UTF_8))
-                    .build();
+            exitCode = process.join();
+        } catch (InterruptedException e) {
+            process.kill();
+            stdErrPump.cancel(true);
+            throw e;
+        }
+        stdErrPump.get();
+
+        if (stdOutReaderFailure != null && exitCode == 0) {
+            throw stdOutReaderFailure;
         }
-    }
 
-    private static Thread attachStdErrLoggingThread(InputStream stdErrInputStream, StepContext context) throws Exception {
-        PrintStream logger = StepContextHelper.getTaskListener(context).getLogger();
+        return ProcResult.<T>builder()
+                .exitCode(exitCode)
+                .stdOutput(decodedStdOutput)
+                .build();
+    }
 
-        Thread thread = new Thread(() -> {
-            try (Scanner scanner = new Scanner(stdErrInputStream, StandardCharsets.UTF_8)) {
-                while (scanner.hasNextLine()) {
-                    logger.println(scanner.nextLine());
+    private static InterruptWatch watchForInterrupt(Thread thread, Proc process) {
+        AtomicBoolean killed = new AtomicBoolean();
+        return new InterruptWatch(INTERRUPT_WATCHDOG.scheduleWithFixedDelay(() -> {
+            if (thread.isInterrupted() && killed.compareAndSet(false, true)) {
+                try {
+                    process.kill();
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "failed to kill interrupted process", e);
                 }
             }
-        });
-        thread.start();
+        }, INTERRUPT_POLL_INTERVAL_MILLIS, INTERRUPT_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private record InterruptWatch(ScheduledFuture<?> check) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            check.cancel(false);
+        }
 
-        return thread;
+    }
+
+    private static <T> T readStdOut(Proc process, StdOutReader<T> stdOutReader) throws Exception {
+        try (InputStream stdOutInputStream = process.getStdout()) {
+            T stdOutput = stdOutReader.read(stdOutInputStream);
+            // consume any trailing output, so that the process does not block on a full pipe
+            stdOutInputStream.transferTo(OutputStream.nullOutputStream());
+            return stdOutput;
+        } catch (Exception e) {
+            // the process might otherwise block on a full pipe
+            if (process.isAlive()) {
+                process.kill();
+            }
+            throw e;
+        }
     }
 
 }
@@ -2,9 +2,13 @@ package io.jenkins.plugins.projectenv.proc;
 
 import lombok.Builder;
 
+/**
+ * @param stdOutput the (decoded) standard output of the process or {@code null}, if the process failed and its
+ * output could not be decoded
+ */
 @Builder
-public record ProcResult(
+public record ProcResult<T>(
         int exitCode,
-        String stdOutput
+        T stdOutput
 ) {
 }
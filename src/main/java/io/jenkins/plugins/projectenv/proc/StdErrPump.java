@@ -0,0 +1,87 @@
+package io.jenkins.plugins.projectenv.proc;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Forwards the standard error of processes to a logger. Every process gets its own pump from an elastic pool, since
+ * a pump waiting for a free thread would let its process block on a full pipe. It is the only thread a process needs
+ * besides the one reading its standard output. Lines are forwarded in batches: everything which is immediately
+ * available is collected and written to the logger at once, which avoids a remote call per line if the logger forwards
+ * to the controller.
+ */
+final class StdErrPump implements Runnable {
+
+    private static final int MAX_BATCH_SIZE = 16 * 1024;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            new NamingThreadFactory(new DaemonThreadFactory(), StdErrPump.class.getSimpleName()));
+
+    private final InputStream stdErr;
+    private final PrintStream logger;
+    private final int lineLimit;
+
+    private StdErrPump(InputStream stdErr, PrintStream logger, int lineLimit) {
+        this.stdErr = stdErr;
+        this.logger = logger;
+        this.lineLimit = lineLimit;
+    }
+
+    /**
+     * @param lineLimit the maximum number of lines to forward, or {@code 0} to forward all lines
+     */
+    static Future<?> start(InputStream stdErr, PrintStream logger, int lineLimit) {
+        return EXECUTOR.submit(new StdErrPump(stdErr, logger, lineLimit));
+    }
+
+    @Override
+    public void run() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stdErr, StandardCharsets.UTF_8))) {
+            StringBuilder batch = new StringBuilder();
+            long lines = 0;
+            long suppressedLines = 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                if (lineLimit > 0 && lines > lineLimit) {
+                    suppressedLines++;
+                    continue;
+                }
+
+                batch.append(line).append(System.lineSeparator());
+                if (batch.length() >= MAX_BATCH_SIZE || !reader.ready()) {
+                    flush(batch);
+                }
+            }
+            flush(batch);
+
+            if (suppressedLines > 0) {
+                logger.println("[Project-Env] suppressed " + suppressedLines + " lines of output"
+                        + " (limit: " + lineLimit + " lines)");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(StringBuilder batch) {
+        if (batch.length() > 0) {
+            logger.print(batch);
+            logger.flush();
+            batch.setLength(0);
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package io.jenkins.plugins.projectenv.proc;
+
+import java.io.InputStream;
+
+/**
+ * Decodes the standard output of a process while the process is running.
+ */
+@FunctionalInterface
+public interface StdOutReader<T> {
+
+    T read(InputStream stdOut) throws Exception;
+
+}
@@ -0,0 +1,152 @@
+package io.jenkins.plugins.projectenv.snapshot;
+
+import hudson.Extension;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Stores the tools snapshots within {@code JENKINS_HOME}. Snapshots which have not been used for the longest time are
+ * evicted as soon as the store exceeds its disk budget.
+ */
+@Extension(ordinal = -100)
+public class FileSystemToolsSnapshotStore extends ToolsSnapshotStore {
+
+    private static final Logger LOGGER = Logger.getLogger(FileSystemToolsSnapshotStore.class.getName());
+
+    static final String SNAPSHOT_FILE_SUFFIX = ".tar.gz";
+
+    private static final long DEFAULT_MAX_SIZE = 20L * 1024 * 1024 * 1024;
+    private static final long MAX_SIZE = SystemProperties.getLong(FileSystemToolsSnapshotStore.class.getName() + ".maxSize", DEFAULT_MAX_SIZE);
+
+    private final File snapshotDirectory;
+    private final long maxSize;
+    private final ConcurrentMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+
+    public FileSystemToolsSnapshotStore() {
+        this(null, MAX_SIZE);
+    }
+
+    FileSystemToolsSnapshotStore(File snapshotDirectory, long maxSize) {
+        this.snapshotDirectory = snapshotDirectory;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return getSnapshotFile(key).isFile();
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path snapshotFile = getSnapshotFile(key).toPath();
+        try {
+            InputStream inputStream = Files.newInputStream(snapshotFile);
+            markAsUsed(snapshotFile);
+            return inputStream;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void store(String key, SnapshotWriter writer) throws IOException, InterruptedException {
+        Path snapshotFile = getSnapshotFile(key).toPath();
+
+        ReentrantLock lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            if (Files.isRegularFile(snapshotFile)) {
+                return;
+            }
+
+            Files.createDirectories(snapshotFile.getParent());
+            Path temporarySnapshotFile = Files.createTempFile(snapshotFile.getParent(), snapshotFile.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream outputStream = Files.newOutputStream(temporarySnapshotFile)) {
+                    writer.writeTo(outputStream);
+                }
+
+                Files.move(temporarySnapshotFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporarySnapshotFile);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        evict();
+    }
+
+    private void evict() throws IOException {
+        synchronized (evictionLock) {
+            List<Path> snapshotFiles = new ArrayList<>();
+            try (Stream<Path> files = Files.list(getSnapshotDirectory().toPath())) {
+                files.filter(file -> file.getFileName().toString().endsWith(SNAPSHOT_FILE_SUFFIX)).forEach(snapshotFiles::add);
+            }
+
+            long totalSize = 0;
+            List<SnapshotFile> snapshots = new ArrayList<>();
+            for (Path file : snapshotFiles) {
+                try {
+                    SnapshotFile snapshot = new SnapshotFile(file, Files.size(file), Files.getLastModifiedTime(file));
+                    snapshots.add(snapshot);
+                    totalSize += snapshot.size();
+                } catch (IOException e) {
+                    // the snapshot has been evicted concurrently
+                    LOGGER.log(Level.FINE, "failed to read attributes of tools snapshot " + file, e);
+                }
+            }
+
+            snapshots.sort(Comparator.comparing(SnapshotFile::lastUsed));
+            for (SnapshotFile snapshot : snapshots) {
+                if (totalSize <= maxSize) {
+                    break;
+                }
+
+                try {
+                    Files.deleteIfExists(snapshot.file());
+                    totalSize -= snapshot.size();
+                } catch (IOException e) {
+                    // a snapshot which is currently being read might not be deletable on all platforms
+                    LOGGER.log(Level.FINE, "failed to evict tools snapshot " + snapshot.file(), e);
+                }
+            }
+        }
+    }
+
+    private static void markAsUsed(Path snapshotFile) throws IOException {
+        Files.setLastModifiedTime(snapshotFile, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    private File getSnapshotFile(String key) {
+        return new File(getSnapshotDirectory(), key + SNAPSHOT_FILE_SUFFIX);
+    }
+
+    private File getSnapshotDirectory() {
+        return snapshotDirectory != null ? snapshotDirectory : new File(Jenkins.get().getRootDir(), "project-env/tools-snapshots");
+    }
+
+    private record SnapshotFile(Path file, long size, FileTime lastUsed) {
+    }
+
+}
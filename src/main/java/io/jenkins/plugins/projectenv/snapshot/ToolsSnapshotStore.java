@@ -0,0 +1,50 @@
+package io.jenkins.plugins.projectenv.snapshot;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Controller-side store of compressed snapshots of tools directories. The store with the highest ordinal is used, so
+ * that other plugins are able to replace the {@link FileSystemToolsSnapshotStore default implementation} (e.g. with
+ * one backed by an artifact repository).
+ */
+public abstract class ToolsSnapshotStore implements ExtensionPoint {
+
+    public static ToolsSnapshotStore get() {
+        ToolsSnapshotStore store = ExtensionList.lookupFirst(ToolsSnapshotStore.class);
+        if (store == null) {
+            throw new IllegalStateException("could not find any tools snapshot store");
+        }
+
+        return store;
+    }
+
+    /**
+     * @return whether the store contains a snapshot with the given key
+     */
+    public abstract boolean contains(String key) throws IOException;
+
+    /**
+     * @return the {@code .tar.gz} stream of the snapshot with the given key or {@code null}, if the store does not
+     * contain such a snapshot
+     */
+    public abstract InputStream open(String key) throws IOException;
+
+    /**
+     * Stores the {@code .tar.gz} snapshot written by the given writer under the given key. The snapshot becomes visible
+     * only once it has been written completely.
+     */
+    public abstract void store(String key, SnapshotWriter writer) throws IOException, InterruptedException;
+
+    @FunctionalInterface
+    public interface SnapshotWriter {
+
+        void writeTo(OutputStream outputStream) throws IOException, InterruptedException;
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package io.jenkins.plugins.projectenv.snapshot;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.tools.ProjectEnvConfigFiles;
+import io.jenkins.plugins.projectenv.tools.SharedToolsStore;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The tools directory of a configuration together with the key of its snapshot.
+ */
+public record ToolsSnapshotTarget(String key, FilePath toolsDirectory) {
+
+    /**
+     * @param tools the names of the tools which are resolved or {@code null}, if all tools of the configuration are
+     *              resolved
+     * @return the target of the given configuration file or {@code null}, if the configuration file does not exist or
+     * does not contain a tools directory
+     */
+    public static ToolsSnapshotTarget resolve(FilePath configFile, FilePath agentRootDirectory, boolean sharedTools, List<String> tools,
+                                              AgentInfo agentInfo) throws IOException, InterruptedException {
+        if (!configFile.exists()) {
+            return null;
+        }
+
+        String configContent = configFile.readToString();
+        String toolsDirectory = ProjectEnvConfigFiles.findToolsDirectory(configContent);
+        if (toolsDirectory == null) {
+            return null;
+        }
+
+        // a snapshot of a selection of tools must not be restored for a step resolving all of them
+        String key = ProjectEnvConfigFiles.computeToolsKey(tools != null ? ProjectEnvConfigFiles.withTools(configContent, tools) : configContent, agentInfo);
+        if (sharedTools) {
+            FilePath entry = new SharedToolsStore(agentRootDirectory, SharedToolsStore.MAX_SIZE).getEntry(ProjectEnvConfigFiles.computeToolsKey(configContent, agentInfo));
+            return new ToolsSnapshotTarget(key, entry);
+        }
+
+        FilePath configDirectory = configFile.getParent();
+        return new ToolsSnapshotTarget(key, configDirectory.child(toolsDirectory));
+    }
+
+}
@@ -0,0 +1,102 @@
+package io.jenkins.plugins.projectenv.snapshot;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.util.DirScanner;
+import hudson.util.io.ArchiverFactory;
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import io.jenkins.plugins.projectenv.metrics.SetupCounter;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Restores tools directories from the {@link ToolsSnapshotStore} before the Project-Env CLI is run and stores
+ * snapshots of the tools directories after the CLI installed them. Snapshots are streamed between the controller and
+ * the agent, while their compression and extraction is done by the agent.
+ */
+public class ToolsSnapshots {
+
+    private static final String LOCK_DESCRIPTION = "Project-Env tools";
+
+    private final ToolsSnapshotStore store;
+    private final InstallLocks installLocks;
+    private final TaskListener listener;
+    private final SetupReport setupReport;
+
+    public ToolsSnapshots(ToolsSnapshotStore store, InstallLocks installLocks, TaskListener listener, SetupReport setupReport) {
+        this.store = store;
+        this.installLocks = installLocks;
+        this.listener = listener;
+        this.setupReport = setupReport;
+    }
+
+    /**
+     * Restores the snapshot of the given target, unless its tools directory already contains tools.
+     *
+     * @return whether the snapshot has been restored
+     */
+    public boolean restore(ToolsSnapshotTarget target) throws Exception {
+        FilePath toolsDirectory = target.toolsDirectory();
+        // builds sharing the tools directory would otherwise race within the extraction
+        try (InstallLock ignored = installLocks.acquire(InstallLocks.getToolsDirectoryKey(toolsDirectory), LOCK_DESCRIPTION)) {
+            if (containsTools(toolsDirectory)) {
+                return false;
+            }
+
+            try (InputStream inputStream = store.open(target.key())) {
+                if (inputStream == null) {
+                    setupReport.increment(SetupCounter.TOOLS_SNAPSHOT_MISSES, 1);
+                    return false;
+                }
+
+                toolsDirectory.mkdirs();
+                try {
+                    toolsDirectory.untarFrom(inputStream, FilePath.TarCompression.GZIP);
+                } catch (IOException | InterruptedException e) {
+                    // a partially restored tools directory would be mistaken for complete tools later on
+                    toolsDirectory.deleteContents();
+                    throw e;
+                }
+            }
+        }
+
+        setupReport.increment(SetupCounter.TOOLS_SNAPSHOT_HITS, 1);
+        listener.getLogger().println("Restored Project-Env tools from snapshot " + target.key());
+        return true;
+    }
+
+    /**
+     * Stores a snapshot of the given target, unless the store already contains one.
+     */
+    public void save(ToolsSnapshotTarget target) throws Exception {
+        if (store.contains(target.key())) {
+            return;
+        }
+
+        FilePath toolsDirectory = target.toolsDirectory();
+        try (InstallLock ignored = installLocks.acquire(InstallLocks.getToolsDirectoryKey(toolsDirectory), LOCK_DESCRIPTION)) {
+            if (!containsTools(toolsDirectory)) {
+                return;
+            }
+
+            // default excludes would drop files of the tools which happen to be named like SCM metadata
+            store.store(target.key(), outputStream -> toolsDirectory.archive(ArchiverFactory.TARGZ, outputStream, new DirScanner.Glob("**/*", null, false)));
+        }
+
+        listener.getLogger().println("Stored Project-Env tools as snapshot " + target.key());
+    }
+
+    private static boolean containsTools(FilePath toolsDirectory) throws IOException, InterruptedException {
+        if (!toolsDirectory.isDirectory()) {
+            return false;
+        }
+
+        List<FilePath> children = toolsDirectory.list();
+        return children != null && !children.isEmpty();
+    }
+
+}
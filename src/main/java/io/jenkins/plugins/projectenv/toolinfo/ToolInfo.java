@@ -1,6 +1,6 @@
 package io.jenkins.plugins.projectenv.toolinfo;
 
-
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
@@ -9,6 +9,6 @@ public record ToolInfo(
         Map<String, String> environmentVariables,
         List<String> pathElements,
         Map<String, String> unhandledProjectResources
-) {
+) implements Serializable {
 
 }
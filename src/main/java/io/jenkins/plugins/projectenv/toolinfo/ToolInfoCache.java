@@ -0,0 +1,147 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import com.google.gson.JsonParseException;
+import hudson.FilePath;
+import hudson.Util;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import jenkins.util.SystemProperties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent-level cache of the tool infos returned by the Project-Env CLI. An entry is keyed by the configuration file
+ * content, the CLI, the agent and the workspace. It is only reused as long as all files and directories referenced by
+ * the tool infos still exist unmodified. Since workspaces come and go, entries which have not been used for a while
+ * are evicted (see {@link #evict(FilePath, long)}).
+ */
+public class ToolInfoCache {
+
+    static final String CACHE_DIRECTORY_NAME = "project-env-tool-infos";
+
+    private static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(14);
+    /**
+     * The time after which an unused entry is evicted.
+     */
+    public static final long MAX_AGE = SystemProperties.getLong(ToolInfoCache.class.getName() + ".maxAge", DEFAULT_MAX_AGE);
+
+    private final FilePath cacheDirectory;
+    private final FilePath workspace;
+
+    public ToolInfoCache(FilePath agentRootDirectory, FilePath workspace) {
+        this.cacheDirectory = agentRootDirectory.child(CACHE_DIRECTORY_NAME);
+        this.workspace = workspace;
+    }
+
+    public static String computeKey(String configFile, String configFileContent, String cliIdentity, AgentInfo agentInfo, FilePath workspace) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            for (String keyElement : List.of(configFile, configFileContent, cliIdentity,
+                    agentInfo.operatingSystem().name(), agentInfo.architecture().name(), workspace.getRemote())) {
+                messageDigest.update(keyElement.getBytes(StandardCharsets.UTF_8));
+                messageDigest.update((byte) 0);
+            }
+
+            return Util.toHexString(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the cached tool infos or {@code null}, if there is no valid entry for the given key
+     */
+    public Map<String, List<ToolInfo>> lookup(String key) throws IOException, InterruptedException {
+        FilePath entryFile = getEntryFile(key);
+        if (!entryFile.exists()) {
+            return null;
+        }
+
+        Entry entry;
+        try {
+            entry = ToolInfoParser.getGson().fromJson(entryFile.readToString(), Entry.class);
+        } catch (JsonParseException e) {
+            entryFile.delete();
+            return null;
+        }
+
+        if (entry == null || entry.toolInfos() == null || entry.fingerprints() == null
+                || !Objects.equals(entry.fingerprints(), computeFingerprints(entry.toolInfos()))) {
+            return null;
+        }
+
+        // the modification time tracks the last use of the entry
+        entryFile.touch(System.currentTimeMillis());
+        return entry.toolInfos();
+    }
+
+    public void store(String key, Map<String, List<ToolInfo>> toolInfos) throws IOException, InterruptedException {
+        Map<String, Long> fingerprints = computeFingerprints(toolInfos);
+        if (fingerprints.containsValue(0L)) {
+            // at least one of the referenced files does not exist, so the entry could never be reused
+            return;
+        }
+
+        FilePath entryFile = getEntryFile(key);
+        FilePath temporaryEntryFile = cacheDirectory.child(key + ".tmp");
+
+        cacheDirectory.mkdirs();
+        temporaryEntryFile.write(ToolInfoParser.getGson().toJson(new Entry(toolInfos, fingerprints)), StandardCharsets.UTF_8.name());
+        temporaryEntryFile.renameTo(entryFile);
+    }
+
+    /**
+     * Deletes the entries of the given agent which have not been used for longer than the given maximum age.
+     *
+     * @return the number of deleted entries
+     */
+    public static int evict(FilePath agentRootDirectory, long maxAge) throws IOException, InterruptedException {
+        FilePath cacheDirectory = agentRootDirectory.child(CACHE_DIRECTORY_NAME);
+        if (!cacheDirectory.exists()) {
+            return 0;
+        }
+
+        return cacheDirectory.act(new ToolInfoCacheEvictionCallable(maxAge));
+    }
+
+    private Map<String, Long> computeFingerprints(Map<String, List<ToolInfo>> toolInfos) throws IOException, InterruptedException {
+        Map<String, Long> fingerprints = new LinkedHashMap<>();
+        for (String path : collectReferencedPaths(toolInfos)) {
+            fingerprints.put(path, workspace.child(path).lastModified());
+        }
+
+        return fingerprints;
+    }
+
+    private static List<String> collectReferencedPaths(Map<String, List<ToolInfo>> toolInfos) {
+        List<String> paths = new ArrayList<>();
+        for (List<ToolInfo> toolInfosOfTool : toolInfos.values()) {
+            for (ToolInfo toolInfo : toolInfosOfTool) {
+                if (toolInfo.primaryExecutable() != null) {
+                    paths.add(toolInfo.primaryExecutable());
+                }
+                if (toolInfo.pathElements() != null) {
+                    paths.addAll(toolInfo.pathElements());
+                }
+            }
+        }
+
+        return paths;
+    }
+
+    private FilePath getEntryFile(String key) {
+        return cacheDirectory.child(key + ".json");
+    }
+
+    private record Entry(Map<String, List<ToolInfo>> toolInfos, Map<String, Long> fingerprints) {
+    }
+
+}
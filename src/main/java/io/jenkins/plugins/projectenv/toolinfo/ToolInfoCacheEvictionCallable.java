@@ -0,0 +1,40 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Deletes the entries (including leftovers of interrupted writes) which have not been used for longer than the given
+ * maximum age. Returns the number of deleted entries.
+ */
+class ToolInfoCacheEvictionCallable extends MasterToSlaveFileCallable<Integer> {
+
+    private final long maxAge;
+
+    ToolInfoCacheEvictionCallable(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public Integer invoke(File cacheDirectory, VirtualChannel channel) throws IOException {
+        File[] entryFiles = cacheDirectory.listFiles(File::isFile);
+        if (entryFiles == null) {
+            return 0;
+        }
+
+        long usedBefore = System.currentTimeMillis() - maxAge;
+        int deletedEntries = 0;
+        for (File entryFile : entryFiles) {
+            // a concurrent lookup might just have used the entry, which then simply misses once
+            if (entryFile.lastModified() < usedBefore && entryFile.delete()) {
+                deletedEntries++;
+            }
+        }
+
+        return deletedEntries;
+    }
+
+}
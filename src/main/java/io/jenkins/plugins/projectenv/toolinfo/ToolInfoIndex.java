@@ -0,0 +1,86 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.tools.ProjectEnvConfigFiles;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-tool index of the tool infos within the {@link ToolInfoCache}. Every tool is stored with a key derived from the
+ * top-level settings of the configuration and the tables of the tool only, so that changing the configuration of one
+ * tool keeps the entries of all other tools valid.
+ */
+public class ToolInfoIndex {
+
+    private static final String TOOL_KEY_PREFIX = "tool:";
+
+    private final ToolInfoCache toolInfoCache;
+    private final Map<String, String> toolKeys = new LinkedHashMap<>();
+
+    public ToolInfoIndex(ToolInfoCache toolInfoCache, String configFile, String configContent, String cliIdentity, AgentInfo agentInfo, FilePath workspace) {
+        this.toolInfoCache = toolInfoCache;
+        for (String tool : ProjectEnvConfigFiles.findTools(configContent)) {
+            String toolConfigContent = TOOL_KEY_PREFIX + tool + "\0" + ProjectEnvConfigFiles.withTools(configContent, List.of(tool));
+            toolKeys.put(tool, ToolInfoCache.computeKey(configFile, toolConfigContent, cliIdentity, agentInfo, workspace));
+        }
+    }
+
+    /**
+     * @return the names of the configured tools, in the order of the configuration
+     */
+    public Set<String> getTools() {
+        return toolKeys.keySet();
+    }
+
+    /**
+     * @return the tool infos of the tools whose configuration did not change since they have been stored and whose
+     * files still exist unmodified
+     */
+    public Map<String, List<ToolInfo>> lookupUnchangedTools() throws IOException, InterruptedException {
+        Map<String, List<ToolInfo>> unchangedToolInfos = new LinkedHashMap<>();
+        for (Map.Entry<String, String> toolKey : toolKeys.entrySet()) {
+            Map<String, List<ToolInfo>> toolInfos = toolInfoCache.lookup(toolKey.getValue());
+            if (toolInfos != null && toolInfos.containsKey(toolKey.getKey())) {
+                unchangedToolInfos.put(toolKey.getKey(), toolInfos.get(toolKey.getKey()));
+            }
+        }
+
+        return unchangedToolInfos;
+    }
+
+    /**
+     * Stores the tool infos of every configured tool separately.
+     */
+    public void store(Map<String, List<ToolInfo>> toolInfos) throws IOException, InterruptedException {
+        for (Map.Entry<String, String> toolKey : toolKeys.entrySet()) {
+            List<ToolInfo> toolInfosOfTool = toolInfos.get(toolKey.getKey());
+            if (toolInfosOfTool != null) {
+                toolInfoCache.store(toolKey.getValue(), Map.of(toolKey.getKey(), toolInfosOfTool));
+            }
+        }
+    }
+
+    /**
+     * @return the combined tool infos in the order of the configuration, followed by the resolved tool infos of tools
+     * the configuration does not name explicitly
+     */
+    public Map<String, List<ToolInfo>> merge(Map<String, List<ToolInfo>> unchangedToolInfos, Map<String, List<ToolInfo>> resolvedToolInfos) {
+        Map<String, List<ToolInfo>> mergedToolInfos = new LinkedHashMap<>();
+        for (String tool : toolKeys.keySet()) {
+            // freshly resolved tool infos take precedence over the ones of an earlier run
+            List<ToolInfo> toolInfos = resolvedToolInfos.containsKey(tool) ? resolvedToolInfos.get(tool) : unchangedToolInfos.get(tool);
+            if (toolInfos != null) {
+                mergedToolInfos.put(tool, toolInfos);
+            }
+        }
+        resolvedToolInfos.forEach(mergedToolInfos::putIfAbsent);
+
+        return mergedToolInfos;
+    }
+
+}
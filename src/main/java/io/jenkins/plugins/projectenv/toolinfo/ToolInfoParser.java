@@ -2,27 +2,55 @@ package io.jenkins.plugins.projectenv.toolinfo;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
-
-import java.lang.reflect.Type;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
 public final class ToolInfoParser {
 
-    private static final Type TOOL_INFOS_TYPE = new TypeToken<Map<String, List<ToolInfo>>>() {
-    }.getType();
+    private static final TypeToken<Map<String, List<ToolInfo>>> TOOL_INFOS_TYPE = new TypeToken<>() {
+    };
+
+    // Gson instances and their type adapters are immutable and thread-safe, so they can be shared
+    private static final Gson GSON = new GsonBuilder().create();
+    private static final TypeAdapter<Map<String, List<ToolInfo>>> TOOL_INFOS_ADAPTER = GSON.getAdapter(TOOL_INFOS_TYPE);
 
     private ToolInfoParser() {
         // noop
     }
 
     public static Map<String, List<ToolInfo>> fromJson(String rawToolInfos) {
-        return createGson().fromJson(rawToolInfos, TOOL_INFOS_TYPE);
+        return fromJson(new StringReader(rawToolInfos));
+    }
+
+    public static Map<String, List<ToolInfo>> fromJson(InputStream rawToolInfos) {
+        return fromJson(new InputStreamReader(rawToolInfos, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes the tool infos directly from the given reader, without buffering the whole input.
+     */
+    public static Map<String, List<ToolInfo>> fromJson(Reader rawToolInfos) {
+        JsonReader jsonReader = GSON.newJsonReader(rawToolInfos);
+        try {
+            return TOOL_INFOS_ADAPTER.read(jsonReader);
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            throw new IllegalStateException("failed to parse tool infos at " + jsonReader.getPath() + ": " + e.getMessage(), e);
+        }
     }
 
-    public static Gson createGson() {
-        return new GsonBuilder().create();
+    public static Gson getGson() {
+        return GSON;
     }
 
 }
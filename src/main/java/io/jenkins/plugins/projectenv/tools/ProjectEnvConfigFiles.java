@@ -0,0 +1,104 @@
+package io.jenkins.plugins.projectenv.tools;
+
+import hudson.Util;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads and rewrites the settings of a Project-Env configuration file which the plugin needs to know about, without
+ * interpreting the rest of the file.
+ */
+public final class ProjectEnvConfigFiles {
+
+    private static final Pattern TOOLS_DIRECTORY_PATTERN = Pattern.compile("^\\s*tools_directory\\s*=\\s*[\"']([^\"']+)[\"'][^\\n]*$", Pattern.MULTILINE);
+
+    /**
+     * Matches the header of a (sub-)table or an array of tables and captures the name of the tool it belongs to.
+     */
+    private static final Pattern TABLE_HEADER_PATTERN = Pattern.compile("^\\s*\\[{1,2}\\s*([A-Za-z0-9_-]+)(\\s*\\.\\s*[A-Za-z0-9_\"'-]+)*\\s*]{1,2}\\s*(#.*)?$");
+
+    private ProjectEnvConfigFiles() {
+        // noop
+    }
+
+    /**
+     * @return the configured tools directory or {@code null}, if the configuration does not contain one
+     */
+    public static String findToolsDirectory(String configContent) {
+        Matcher matcher = TOOLS_DIRECTORY_PATTERN.matcher(configContent);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * @return the configuration with the given tools directory, which is written as literal string, so that Windows
+     * paths do not have to be escaped
+     */
+    public static String withToolsDirectory(String configContent, String toolsDirectory) {
+        String toolsDirectorySetting = "tools_directory = '" + toolsDirectory + "'";
+
+        Matcher matcher = TOOLS_DIRECTORY_PATTERN.matcher(configContent);
+        if (matcher.find()) {
+            return configContent.substring(0, matcher.start()) + toolsDirectorySetting + configContent.substring(matcher.end());
+        }
+
+        // top-level keys have to precede all tables
+        return toolsDirectorySetting + "\n" + configContent;
+    }
+
+    /**
+     * @return a key identifying the tools the given configuration installs on the given agent, independent of where
+     * they are installed
+     */
+    public static String computeToolsKey(String configContent, AgentInfo agentInfo) {
+        return Util.getDigestOf(withoutToolsDirectory(configContent) + "\0"
+                + agentInfo.operatingSystem().name() + "\0" + agentInfo.architecture().name());
+    }
+
+    /**
+     * @return the configuration without the tools directory, which describes the installed tools independent of
+     * where they are installed
+     */
+    public static String withoutToolsDirectory(String configContent) {
+        return TOOLS_DIRECTORY_PATTERN.matcher(configContent).replaceAll("");
+    }
+
+    /**
+     * @return the names of the tools configured in the given configuration, in the order of their first appearance
+     */
+    public static Set<String> findTools(String configContent) {
+        Set<String> tools = new LinkedHashSet<>();
+        for (String line : configContent.split("\n", -1)) {
+            Matcher matcher = TABLE_HEADER_PATTERN.matcher(line);
+            if (matcher.matches()) {
+                tools.add(matcher.group(1));
+            }
+        }
+
+        return tools;
+    }
+
+    /**
+     * @return the configuration with the top-level settings and the tables of the given tools only
+     */
+    public static String withTools(String configContent, Collection<String> tools) {
+        StringBuilder selectedConfigContent = new StringBuilder();
+        boolean selected = true;
+        for (String line : configContent.split("\n", -1)) {
+            Matcher matcher = TABLE_HEADER_PATTERN.matcher(line);
+            if (matcher.matches()) {
+                selected = tools.contains(matcher.group(1));
+            }
+            if (selected) {
+                selectedConfigContent.append(line).append('\n');
+            }
+        }
+
+        return selectedConfigContent.substring(0, Math.max(selectedConfigContent.length() - 1, 0));
+    }
+
+}
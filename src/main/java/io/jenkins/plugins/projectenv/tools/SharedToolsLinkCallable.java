@@ -0,0 +1,70 @@
+package io.jenkins.plugins.projectenv.tools;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Replaces the tools directory of a workspace with a symbolic link to an entry of the shared tools store. The tools
+ * directory is resolved against the directory of the configuration file and has to be located inside the workspace,
+ * since whatever is found there is deleted. The reference of the entry is written before the link, so that the link
+ * is never seen without its reference. Returns the normalized path of the tools directory.
+ */
+class SharedToolsLinkCallable extends MasterToSlaveFileCallable<String> {
+
+    private final String configDirectory;
+    private final String toolsDirectory;
+    private final String entry;
+    private final String referencesDirectory;
+
+    SharedToolsLinkCallable(String configDirectory, String toolsDirectory, String entry, String referencesDirectory) {
+        this.configDirectory = configDirectory;
+        this.toolsDirectory = toolsDirectory;
+        this.entry = entry;
+        this.referencesDirectory = referencesDirectory;
+    }
+
+    @Override
+    public String invoke(File workspace, VirtualChannel channel) throws IOException {
+        Path workspacePath = workspace.toPath().toAbsolutePath().normalize();
+        Path configDirectoryPath = Path.of(configDirectory).toAbsolutePath().normalize();
+        Path toolsDirectoryPath = configDirectoryPath.resolve(toolsDirectory).normalize();
+        if (!toolsDirectoryPath.startsWith(workspacePath) || toolsDirectoryPath.equals(workspacePath)) {
+            throw new IllegalStateException("tools_directory " + toolsDirectory + " has to be located inside the workspace to use the shared tools store");
+        }
+        if (configDirectoryPath.startsWith(toolsDirectoryPath)) {
+            throw new IllegalStateException("tools_directory " + toolsDirectory + " must not contain the Project-Env configuration to use the shared tools store");
+        }
+
+        Path referencesDirectoryPath = Path.of(referencesDirectory);
+        Files.createDirectories(referencesDirectoryPath);
+        Files.writeString(referencesDirectoryPath.resolve(Util.getDigestOf(toolsDirectoryPath.toString())), toolsDirectoryPath.toString(),
+                StandardCharsets.UTF_8);
+
+        Path entryPath = Path.of(entry);
+        if (Files.isSymbolicLink(toolsDirectoryPath)) {
+            if (entryPath.equals(Files.readSymbolicLink(toolsDirectoryPath))) {
+                return toolsDirectoryPath.toString();
+            }
+
+            // the link of another entry is replaced without touching the entry itself
+            Files.delete(toolsDirectoryPath);
+        } else if (Files.isDirectory(toolsDirectoryPath)) {
+            // the tools directory might still contain the tools installed before the shared store was used
+            Util.deleteRecursive(toolsDirectoryPath.toFile());
+        } else if (Files.exists(toolsDirectoryPath)) {
+            throw new IllegalStateException("tools_directory " + toolsDirectory + " is not a directory");
+        }
+
+        Files.createDirectories(toolsDirectoryPath.getParent());
+        Files.createSymbolicLink(toolsDirectoryPath, entryPath);
+        return toolsDirectoryPath.toString();
+    }
+
+}
@@ -0,0 +1,77 @@
+package io.jenkins.plugins.projectenv.tools;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import jenkins.util.SystemProperties;
+
+import java.io.IOException;
+
+/**
+ * Agent-level store of tools shared by all workspaces of the agent. Each entry contains the tools of one
+ * configuration (ignoring its tools directory) and is linked into the tools directory of every workspace using it.
+ * The links are tracked as references of the entry, so that entries which are no longer linked from any workspace are
+ * garbage collected as soon as the store exceeds its disk budget.
+ */
+public class SharedToolsStore {
+
+    static final String STORE_DIRECTORY_NAME = "project-env-tools";
+    static final String METADATA_DIRECTORY_PREFIX = ".";
+    static final String REFERENCES_DIRECTORY_NAME = ".references";
+    static final String LAST_USED_DIRECTORY_NAME = ".last-used";
+
+    private static final long DEFAULT_MAX_SIZE = 10L * 1024 * 1024 * 1024;
+    /**
+     * The disk budget of the store, as configured on the controller.
+     */
+    public static final long MAX_SIZE = SystemProperties.getLong(SharedToolsStore.class.getName() + ".maxSize", DEFAULT_MAX_SIZE);
+
+    private final FilePath storeDirectory;
+    private final long maxSize;
+
+    public SharedToolsStore(FilePath agentRootDirectory, long maxSize) {
+        this.storeDirectory = agentRootDirectory.child(STORE_DIRECTORY_NAME);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param entryKey the {@link ProjectEnvConfigFiles#computeToolsKey(String, AgentInfo) tools key} of the entry
+     */
+    public FilePath getEntry(String entryKey) {
+        return storeDirectory.child(entryKey);
+    }
+
+    /**
+     * Links the tools directory of a workspace to the given entry and tracks the link as reference of the entry. The
+     * link is created within the install lock of the entry, which the garbage collection takes as well, so that an
+     * entry is never deleted while a workspace is being linked to it.
+     *
+     * @param configDirectory the directory of the configuration file the tools directory is relative to
+     * @param toolsDirectory  the tools directory as configured, which has to be located inside the workspace
+     */
+    public void link(FilePath workspace, FilePath configDirectory, String toolsDirectory, FilePath entry, InstallLocks installLocks) throws Exception {
+        try (InstallLock ignored = installLocks.acquire(InstallLocks.getToolsDirectoryKey(entry), "Project-Env tools")) {
+            entry.mkdirs();
+            storeDirectory.child(LAST_USED_DIRECTORY_NAME).child(entry.getName()).touch(System.currentTimeMillis());
+
+            workspace.act(new SharedToolsLinkCallable(configDirectory.getRemote(), toolsDirectory, entry.getRemote(),
+                    storeDirectory.child(REFERENCES_DIRECTORY_NAME).child(entry.getName()).getRemote()));
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries, which are not linked from any workspace anymore, until the store fits
+     * into its disk budget.
+     *
+     * @return the number of reclaimed bytes
+     */
+    public long collectGarbage() throws IOException, InterruptedException {
+        if (!storeDirectory.exists()) {
+            return 0;
+        }
+
+        return storeDirectory.act(new SharedToolsStoreGarbageCollectionCallable(maxSize));
+    }
+
+}
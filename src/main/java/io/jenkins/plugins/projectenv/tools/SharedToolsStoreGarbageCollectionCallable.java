@@ -0,0 +1,153 @@
+package io.jenkins.plugins.projectenv.tools;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drops the references of workspaces no longer linking to an entry and deletes the least recently used entries
+ * without references until the store fits into the given disk budget. Entries which are currently being installed or
+ * linked are skipped, and the references are only inspected within the install lock of their entry. Returns the
+ * number of reclaimed bytes.
+ */
+class SharedToolsStoreGarbageCollectionCallable extends MasterToSlaveFileCallable<Long> {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedToolsStoreGarbageCollectionCallable.class.getName());
+
+    private final long maxSize;
+
+    SharedToolsStoreGarbageCollectionCallable(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Long invoke(File storeDirectory, VirtualChannel channel) throws IOException {
+        File[] entries = storeDirectory.listFiles(file -> file.isDirectory() && !StringUtils.startsWith(file.getName(), SharedToolsStore.METADATA_DIRECTORY_PREFIX));
+        if (entries == null) {
+            return 0L;
+        }
+
+        long totalSize = 0;
+        List<StoreEntry> garbageCandidates = new ArrayList<>();
+        for (File entry : entries) {
+            long size = FileUtils.sizeOfDirectory(entry);
+            totalSize += size;
+
+            if (isUnreferenced(storeDirectory, entry)) {
+                garbageCandidates.add(new StoreEntry(entry, size, getLastUsed(storeDirectory, entry)));
+            }
+        }
+
+        long reclaimedBytes = 0;
+        garbageCandidates.sort(Comparator.comparingLong(StoreEntry::lastUsed));
+        for (StoreEntry garbageCandidate : garbageCandidates) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+
+            long deletedBytes = delete(storeDirectory, garbageCandidate);
+            totalSize -= deletedBytes;
+            reclaimedBytes += deletedBytes;
+        }
+
+        return reclaimedBytes;
+    }
+
+    /**
+     * @return whether the entry is neither referenced nor locked by a build installing or linking it right now
+     */
+    private static boolean isUnreferenced(File storeDirectory, File entry) {
+        try (InstallLock installLock = InstallLocks.tryAcquireLocally(storeDirectory.getParentFile(), getLockKey(entry))) {
+            return installLock != null && !hasReferences(storeDirectory, entry);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "failed to check references of shared tools store entry " + entry, e);
+            return false;
+        }
+    }
+
+    /**
+     * Has to be called within the install lock of the entry, since a build writes the reference before the link.
+     */
+    private static boolean hasReferences(File storeDirectory, File entry) throws IOException {
+        File[] references = getReferencesDirectory(storeDirectory, entry).listFiles(File::isFile);
+        if (references == null) {
+            return false;
+        }
+
+        boolean hasReferences = false;
+        for (File reference : references) {
+            Path workspaceToolsDirectory = Path.of(Files.readString(reference.toPath(), StandardCharsets.UTF_8));
+            if (isLinkedTo(workspaceToolsDirectory, entry)) {
+                hasReferences = true;
+            } else {
+                // the workspace has been deleted or uses other tools in the meantime
+                Files.deleteIfExists(reference.toPath());
+            }
+        }
+
+        return hasReferences;
+    }
+
+    private static boolean isLinkedTo(Path workspaceToolsDirectory, File entry) {
+        try {
+            return Files.isSymbolicLink(workspaceToolsDirectory)
+                    && Files.readSymbolicLink(workspaceToolsDirectory).equals(entry.toPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long getLastUsed(File storeDirectory, File entry) {
+        File marker = new File(new File(storeDirectory, SharedToolsStore.LAST_USED_DIRECTORY_NAME), entry.getName());
+        return marker.exists() ? marker.lastModified() : entry.lastModified();
+    }
+
+    private static long delete(File storeDirectory, StoreEntry storeEntry) {
+        File entry = storeEntry.directory();
+        try (InstallLock installLock = InstallLocks.tryAcquireLocally(storeDirectory.getParentFile(), getLockKey(entry))) {
+            // the entry might be installed or linked by a build right now
+            if (installLock == null || hasReferences(storeDirectory, entry)) {
+                return 0;
+            }
+
+            // the entry might still be in use by a running build (e.g. on Windows), so we simply try again next time
+            if (!FileUtils.deleteQuietly(entry)) {
+                return 0;
+            }
+            FileUtils.deleteQuietly(getReferencesDirectory(storeDirectory, entry));
+            FileUtils.deleteQuietly(new File(new File(storeDirectory, SharedToolsStore.LAST_USED_DIRECTORY_NAME), entry.getName()));
+
+            return storeEntry.size();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "failed to delete shared tools store entry " + entry, e);
+            return 0;
+        }
+    }
+
+    private static String getLockKey(File entry) {
+        return InstallLocks.getToolsDirectoryKey(new FilePath(entry));
+    }
+
+    private static File getReferencesDirectory(File storeDirectory, File entry) {
+        return new File(new File(storeDirectory, SharedToolsStore.REFERENCES_DIRECTORY_NAME), entry.getName());
+    }
+
+    private record StoreEntry(File directory, long size, long lastUsed) {
+    }
+
+}
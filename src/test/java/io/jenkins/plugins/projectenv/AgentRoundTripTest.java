@@ -0,0 +1,96 @@
+package io.jenkins.plugins.projectenv;
+
+import hudson.model.Label;
+import hudson.model.Result;
+import hudson.remoting.Channel;
+import hudson.remoting.Request;
+import hudson.remoting.Response;
+import hudson.slaves.DumbSlave;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the controller to agent round trips caused by {@code withProjectEnv}, once with the environment prepared by
+ * the controller and once prepared by the agent itself.
+ */
+@WithJenkins
+class AgentRoundTripTest {
+
+    private static final int ITERATIONS = 3;
+
+    @Test
+    @Timeout(600)
+    void testAgentSidePreparationSavesRoundTrips(JenkinsRule j) throws Exception {
+        DumbSlave agent = j.createOnlineSlave(Label.get("agent"));
+        RoundTripCounter roundTripCounter = new RoundTripCounter();
+        ((Channel) agent.getChannel()).addListener(roundTripCounter);
+
+        WorkflowJob baselineProject = createProject(j, "");
+        WorkflowJob project = createProject(j, "withProjectEnv(configFile: 'project-env.toml') {}");
+
+        // warm up, so that the Project-Env CLI is already cached on the agent
+        j.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+
+        boolean agentSidePreparation = WithProjectEnvStepExecution.AGENT_SIDE_PREPARATION;
+        try {
+            long baselineRoundTrips = countRoundTrips(j, baselineProject, roundTripCounter);
+
+            WithProjectEnvStepExecution.AGENT_SIDE_PREPARATION = false;
+            long controllerSideRoundTrips = countRoundTrips(j, project, roundTripCounter) - baselineRoundTrips;
+
+            WithProjectEnvStepExecution.AGENT_SIDE_PREPARATION = true;
+            long agentSideRoundTrips = countRoundTrips(j, project, roundTripCounter) - baselineRoundTrips;
+
+            assertThat(agentSideRoundTrips).isLessThan(controllerSideRoundTrips);
+        } finally {
+            WithProjectEnvStepExecution.AGENT_SIDE_PREPARATION = agentSidePreparation;
+        }
+    }
+
+    private long countRoundTrips(JenkinsRule j, WorkflowJob project, RoundTripCounter roundTripCounter) throws Exception {
+        long totalRoundTrips = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long roundTripsBefore = roundTripCounter.get();
+            j.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+            totalRoundTrips += roundTripCounter.get() - roundTripsBefore;
+        }
+
+        return totalRoundTrips / ITERATIONS;
+    }
+
+    private WorkflowJob createProject(JenkinsRule j, String step) throws Exception {
+        WorkflowJob project = j.createProject(WorkflowJob.class);
+        project.setDefinition(new CpsFlowDefinition("""
+                node('agent') {
+                  writeFile text: 'tools_directory = ".tools"', file: 'project-env.toml'
+                  %s
+                }
+                """.formatted(step), true));
+
+        return project;
+    }
+
+    private static class RoundTripCounter extends Channel.Listener {
+
+        private final AtomicLong roundTrips = new AtomicLong();
+
+        @Override
+        public void onResponse(Channel channel, Request<?, ?> req, Response<?, ?> rsp, long totalTime) {
+            roundTrips.incrementAndGet();
+        }
+
+        long get() {
+            return roundTrips.get();
+        }
+
+    }
+
+}
@@ -3,6 +3,10 @@ package io.jenkins.plugins.projectenv;
 import hudson.model.Descriptor;
 import hudson.model.Label;
 import hudson.model.Result;
+import hudson.slaves.DumbSlave;
+import io.jenkins.plugins.projectenv.agent.AgentFactsCache;
+import io.jenkins.plugins.projectenv.config.PrewarmConfiguration;
+import io.jenkins.plugins.projectenv.config.ProjectEnvGlobalConfiguration;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
@@ -16,6 +20,7 @@ import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -111,6 +116,42 @@ class WithProjectEnvStepTest {
         assertThat(run.getLog()).contains("Failed to install tools: FileNotFoundException");
     }
 
+    @Test
+    @Timeout(600)
+    void testStepExecutionWithPrewarmedSharedTools() throws Exception {
+        String projectEnvConfigFileContent = """
+                tools_directory = ".tools"
+
+                [gradle]
+                version = "9.0.0"
+                """;
+
+        // the tools directory of the reference configuration does not matter for the shared tools store
+        PrewarmConfiguration prewarmConfiguration = new PrewarmConfiguration("prewarm");
+        prewarmConfiguration.setReferenceConfig(projectEnvConfigFileContent.replace(".tools", "other-tools"));
+        ProjectEnvGlobalConfiguration.get().setPrewarmConfigurations(List.of(prewarmConfiguration));
+
+        DumbSlave agent = j.createOnlineSlave(Label.get("prewarm"));
+        AgentFactsCache.get().getAgentFacts(agent.toComputer()).getPrewarm().get();
+
+        WorkflowJob project = j.createProject(WorkflowJob.class);
+        String pipeline = """
+                node('prewarm') {
+                  writeFile text: '''%s''', file: 'project-env.toml'
+                  withProjectEnv(cliDebug: true, sharedTools: true) {
+                    sh 'gradle --version'
+                  }
+                }
+                """.formatted(projectEnvConfigFileContent);
+        project.setDefinition(createOsSpecificPipelineDefinition(pipeline));
+
+        WorkflowRun run = j.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+        assertThat(run.getLog())
+                // assert that Gradle has been linked from the shared tools store instead of being installed again
+                .doesNotContain("Installing Gradle 9.0.0...")
+                .contains("Gradle 9.0.0");
+    }
+
     private String readTestResource(String resource) throws IOException {
         return IOUtils.toString(getClass().getResource(resource), StandardCharsets.UTF_8);
     }
@@ -0,0 +1,120 @@
+package io.jenkins.plugins.projectenv.admission;
+
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import io.jenkins.plugins.projectenv.metrics.SetupCounter;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstallAdmissionTest {
+
+    private ByteArrayOutputStream log;
+    private TaskListener listener;
+    private SetupReport setupReport;
+
+    @BeforeEach
+    void setUp() {
+        log = new ByteArrayOutputStream();
+        listener = new StreamTaskListener(log, StandardCharsets.UTF_8);
+        setupReport = new SetupReport();
+    }
+
+    @Test
+    void testUnlimitedAdmissionDoesNotWait() {
+        InstallAdmission admission = new InstallAdmission(() -> 0, () -> 0);
+        assertThat(admission.isLimited()).isFalse();
+
+        CompletableFuture<InstallPermit> first = admission.acquire("agent", listener, setupReport);
+        CompletableFuture<InstallPermit> second = admission.acquire("agent", listener, setupReport);
+        assertThat(first).isDone();
+        assertThat(second).isDone();
+        first.join().close();
+        second.join().close();
+
+        assertThat(setupReport.getCounters()).doesNotContainKey(SetupCounter.ADMISSION_WAITS);
+        assertThat(log.toString(StandardCharsets.UTF_8)).isEmpty();
+    }
+
+    @Test
+    void testGlobalLimitQueuesSteps() {
+        InstallAdmission admission = new InstallAdmission(() -> 1, () -> 0);
+        assertThat(admission.isLimited()).isTrue();
+
+        InstallPermit permit = admission.acquire("agent-1", listener, new SetupReport()).join();
+        CompletableFuture<InstallPermit> waiting = admission.acquire("agent-2", listener, setupReport);
+
+        assertThat(log.toString(StandardCharsets.UTF_8)).contains("position 1 in the queue");
+        assertThat(waiting).isNotDone();
+
+        permit.close();
+        // releasing twice must not free a second slot
+        permit.close();
+
+        assertThat(waiting).isDone();
+        assertThat(admission.acquire("agent-3", listener, new SetupReport())).isNotDone();
+        waiting.join().close();
+        assertThat(setupReport.getCounters()).containsEntry(SetupCounter.ADMISSION_WAITS, 1L);
+        assertThat(log.toString(StandardCharsets.UTF_8)).contains("for a free Project-Env installation slot");
+    }
+
+    @Test
+    void testPerAgentLimitDoesNotBlockOtherAgents() {
+        InstallAdmission admission = new InstallAdmission(() -> 0, () -> 1);
+
+        InstallPermit permit = admission.acquire("agent-1", listener, new SetupReport()).join();
+        CompletableFuture<InstallPermit> sameAgent = admission.acquire("agent-1", listener, new SetupReport());
+        assertThat(log.toString(StandardCharsets.UTF_8)).contains("position 1 in the queue");
+
+        // the queued step of the busy agent is skipped
+        CompletableFuture<InstallPermit> otherAgent = admission.acquire("agent-2", listener, new SetupReport());
+        assertThat(otherAgent).isDone();
+        otherAgent.join().close();
+        assertThat(sameAgent).isNotDone();
+
+        permit.close();
+        assertThat(sameAgent).isDone();
+        sameAgent.join().close();
+    }
+
+    @Test
+    void testRaisedLimitAdmitsWaitingSteps() {
+        int[] limit = {1};
+        InstallAdmission admission = new InstallAdmission(() -> limit[0], () -> 0);
+
+        InstallPermit permit = admission.acquire("agent-1", listener, new SetupReport()).join();
+        CompletableFuture<InstallPermit> waiting = admission.acquire("agent-2", listener, new SetupReport());
+        assertThat(waiting).isNotDone();
+
+        limit[0] = 2;
+        admission.limitsChanged();
+
+        assertThat(waiting).isDone();
+        waiting.join().close();
+        permit.close();
+    }
+
+    @Test
+    void testCancelledWaitDoesNotTakeSlot() {
+        InstallAdmission admission = new InstallAdmission(() -> 1, () -> 0);
+
+        InstallPermit permit = admission.acquire("agent-1", listener, new SetupReport()).join();
+        CompletableFuture<InstallPermit> cancelled = admission.acquire("agent-2", listener, new SetupReport());
+        CompletableFuture<InstallPermit> waiting = admission.acquire("agent-3", listener, new SetupReport());
+        assertThat(cancelled.cancel(false)).isTrue();
+
+        permit.close();
+
+        // the slot goes to the next step in the queue, and is free again as soon as that step releases it
+        assertThat(waiting).isDone();
+        waiting.join().close();
+        assertThat(admission.acquire("agent-4", listener, new SetupReport())).isDone();
+    }
+
+}
@@ -0,0 +1,51 @@
+package io.jenkins.plugins.projectenv.agent;
+
+import hudson.model.Computer;
+import hudson.slaves.DumbSlave;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@WithJenkins
+class AgentFactsCacheTest {
+
+    private JenkinsRule j;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        j = rule;
+    }
+
+    @Test
+    void testAgentFactsAreReusedWhileConnected() throws Exception {
+        Computer computer = j.createOnlineSlave().toComputer();
+
+        AgentFacts agentFacts = AgentFactsCache.get().getAgentFacts(computer);
+        agentFacts.setCliPathLookup("/usr/bin", new CliPathLookup("/usr/bin/project-env-cli"));
+
+        assertThat(AgentFactsCache.get().getAgentFacts(computer)).isSameAs(agentFacts);
+        assertThat(agentFacts.getCliPathLookup("/usr/bin")).isEqualTo(new CliPathLookup("/usr/bin/project-env-cli"));
+        assertThat(agentFacts.getCliPathLookup("/opt/bin:/usr/bin")).isNull();
+    }
+
+    @Test
+    void testAgentFactsAreInvalidatedOnReconnect() throws Exception {
+        DumbSlave agent = j.createOnlineSlave();
+        Computer computer = agent.toComputer();
+
+        AgentFacts agentFacts = AgentFactsCache.get().getAgentFacts(computer);
+        agentFacts.setAgentInfo(new AgentInfoCallable().call());
+
+        computer.disconnect(null).get();
+        computer.connect(false).get();
+        j.waitOnline(agent);
+
+        AgentFacts reconnectedAgentFacts = AgentFactsCache.get().getAgentFacts(computer);
+        assertThat(reconnectedAgentFacts).isNotSameAs(agentFacts);
+        assertThat(reconnectedAgentFacts.getAgentInfo()).isNull();
+    }
+
+}
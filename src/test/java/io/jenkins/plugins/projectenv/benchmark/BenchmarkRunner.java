@@ -0,0 +1,39 @@
+package io.jenkins.plugins.projectenv.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the JMH benchmarks of this package. Not part of the regular test suite, run it with
+ * {@code mvn test -Pbenchmark}. A subset of the benchmarks can be selected with a regular expression, e.g.
+ * {@code -Dbenchmark.include=ProcHelper}.
+ */
+class BenchmarkRunner {
+
+    private static final String INCLUDE = System.getProperty("benchmark.include", ".*");
+
+    @Test
+    void runJmhBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(BenchmarkRunner.class.getPackageName() + "\\.[^.]*" + INCLUDE + "[^.]*Benchmark")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-report.json")
+                .build();
+
+        new Runner(options).run();
+    }
+
+}
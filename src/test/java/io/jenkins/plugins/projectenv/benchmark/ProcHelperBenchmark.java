@@ -0,0 +1,68 @@
+package io.jenkins.plugins.projectenv.benchmark;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import io.jenkins.plugins.projectenv.proc.ProcHelper;
+import io.jenkins.plugins.projectenv.proc.ProcResult;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the stream handling of {@link ProcHelper} with a process which writes a high volume of standard error
+ * output (as the Project-Env CLI does with {@code --debug}) in addition to the tool infos on the standard output.
+ * Requires a POSIX shell.
+ */
+@State(Scope.Benchmark)
+public class ProcHelperBenchmark {
+
+    @Param({"1000", "100000"})
+    public int stdErrLines;
+
+    @Param({"0", "100"})
+    public int stdErrLineLimit;
+
+    private File workingDirectory;
+    private Launcher launcher;
+    private TaskListener listener;
+    private String[] commands;
+
+    @Setup
+    public void setUp() throws Exception {
+        workingDirectory = Files.createTempDirectory("proc-helper-benchmark").toFile();
+        listener = new StreamTaskListener(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+        launcher = new Launcher.LocalLauncher(listener);
+
+        File toolInfosFile = new File(workingDirectory, "tool-infos.json");
+        Files.writeString(toolInfosFile.toPath(), ToolInfoPayloads.createJson(20, 4, 4));
+
+        commands = new String[]{"/bin/sh", "-c",
+                "yes '[DEBUG] synthetic Project-Env CLI output line' | head -n " + stdErrLines + " 1>&2; cat tool-infos.json"};
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        new FilePath(workingDirectory).deleteRecursive();
+    }
+
+    @Benchmark
+    public ProcResult<Map<String, List<ToolInfo>>> execute() throws Exception {
+        return ProcHelper.execute(launcher, new EnvVars(), new FilePath(workingDirectory), listener, stdErrLineLimit, ToolInfoParser::fromJson, commands);
+    }
+
+}
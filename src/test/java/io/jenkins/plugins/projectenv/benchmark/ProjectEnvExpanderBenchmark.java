@@ -0,0 +1,91 @@
+package io.jenkins.plugins.projectenv.benchmark;
+
+import hudson.EnvVars;
+import io.jenkins.plugins.projectenv.env.ProjectEnvDelta;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the expansion of a typical agent environment with one {@code PATH+XYZ} entry per path element (as done
+ * before) with applying the precomputed {@link ProjectEnvDelta}. The expansion happens for every {@code sh}/{@code bat}
+ * step within the step body.
+ */
+@State(Scope.Benchmark)
+public class ProjectEnvExpanderBenchmark {
+
+    private static final String CLI_INSTALLATION_DIRECTORY = "/home/jenkins/project-env-cli/cli";
+
+    @Param({"4", "50", "200"})
+    public int tools;
+
+    @Param({"2", "20"})
+    public int pathElements;
+
+    private Map<String, List<ToolInfo>> allToolInfos;
+    private EnvVars agentEnvVars;
+    private EnvVars projectEnvVars;
+    private ProjectEnvDelta projectEnvDelta;
+
+    @Setup
+    public void setUp() {
+        allToolInfos = ToolInfoPayloads.create(tools, pathElements, 4);
+
+        agentEnvVars = new EnvVars();
+        agentEnvVars.put("PATH", "/usr/local/sbin:/usr/local/bin:/usr/sbin:/usr/bin:/sbin:/bin");
+        agentEnvVars.put("HOME", "/home/jenkins");
+        for (int i = 0; i < 50; i++) {
+            agentEnvVars.put("AGENT_VAR" + i, "value" + i);
+        }
+
+        projectEnvVars = createProjectEnvVars();
+        projectEnvDelta = createProjectEnvDelta();
+    }
+
+    @Benchmark
+    public EnvVars createProjectEnvVars() {
+        EnvVars envVars = new EnvVars();
+        envVars.put("PATH+PROJECT_ENV_CLI", CLI_INSTALLATION_DIRECTORY);
+        for (Map.Entry<String, List<ToolInfo>> entry : allToolInfos.entrySet()) {
+            for (ToolInfo toolInfo : entry.getValue()) {
+                List<String> toolPathElements = toolInfo.pathElements();
+                for (int i = 0; i < toolPathElements.size(); i++) {
+                    envVars.put("PATH+" + StringUtils.upperCase(entry.getKey()) + "_" + i, toolPathElements.get(i));
+                }
+
+                envVars.putAll(toolInfo.environmentVariables());
+            }
+        }
+
+        return envVars;
+    }
+
+    @Benchmark
+    public ProjectEnvDelta createProjectEnvDelta() {
+        return ProjectEnvDelta.create(CLI_INSTALLATION_DIRECTORY, allToolInfos);
+    }
+
+    @Benchmark
+    public EnvVars expandWithOverrideAll() {
+        EnvVars envVars = new EnvVars(agentEnvVars);
+        envVars.overrideAll(projectEnvVars);
+
+        return envVars;
+    }
+
+    @Benchmark
+    public EnvVars expandWithDelta() {
+        EnvVars envVars = new EnvVars(agentEnvVars);
+        projectEnvDelta.applyTo(envVars);
+
+        return envVars;
+    }
+
+}
@@ -0,0 +1,60 @@
+package io.jenkins.plugins.projectenv.benchmark;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares decoding the tool infos from a fully buffered string with a new Gson instance per call (as done before)
+ * with decoding them directly from the process output stream with the shared Gson instance.
+ */
+@State(Scope.Benchmark)
+public class ToolInfoParserBenchmark {
+
+    private static final Type TOOL_INFOS_TYPE = new TypeToken<Map<String, List<ToolInfo>>>() {
+    }.getType();
+
+    @Param({"small", "huge"})
+    public String payload;
+
+    private byte[] rawToolInfos;
+
+    @Setup
+    public void setUp() {
+        rawToolInfos = switch (payload) {
+            case "small" -> ToolInfoPayloads.createJson(4, 2, 4).getBytes(StandardCharsets.UTF_8);
+            case "huge" -> ToolInfoPayloads.createJson(200, 20, 100).getBytes(StandardCharsets.UTF_8);
+            default -> throw new IllegalArgumentException(payload);
+        };
+    }
+
+    @Benchmark
+    public Map<String, List<ToolInfo>> bufferedString() throws Exception {
+        ByteArrayOutputStream stdOut = new ByteArrayOutputStream();
+        try (InputStream inputStream = new ByteArrayInputStream(rawToolInfos)) {
+            inputStream.transferTo(stdOut);
+        }
+
+        return new GsonBuilder().create().fromJson(stdOut.toString(StandardCharsets.UTF_8), TOOL_INFOS_TYPE);
+    }
+
+    @Benchmark
+    public Map<String, List<ToolInfo>> stream() {
+        return ToolInfoParser.fromJson(new ByteArrayInputStream(rawToolInfos));
+    }
+
+}
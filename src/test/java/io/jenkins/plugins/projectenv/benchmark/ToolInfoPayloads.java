@@ -0,0 +1,45 @@
+package io.jenkins.plugins.projectenv.benchmark;
+
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates synthetic tool infos, as returned by the Project-Env CLI.
+ */
+final class ToolInfoPayloads {
+
+    private ToolInfoPayloads() {
+        // noop
+    }
+
+    static Map<String, List<ToolInfo>> create(int tools, int pathElements, int environmentVariables) {
+        Map<String, List<ToolInfo>> allToolInfos = new LinkedHashMap<>();
+        for (int tool = 0; tool < tools; tool++) {
+            String toolDirectory = "/home/jenkins/workspace/job/.tools/tool" + tool;
+
+            List<String> toolPathElements = new ArrayList<>();
+            for (int pathElement = 0; pathElement < pathElements; pathElement++) {
+                toolPathElements.add(toolDirectory + "/bin" + pathElement);
+            }
+
+            Map<String, String> toolEnvironmentVariables = new LinkedHashMap<>();
+            for (int environmentVariable = 0; environmentVariable < environmentVariables; environmentVariable++) {
+                toolEnvironmentVariables.put("TOOL" + tool + "_VAR" + environmentVariable, toolDirectory + "/lib" + environmentVariable);
+            }
+
+            allToolInfos.put("tool" + tool, List.of(new ToolInfo(toolDirectory + "/bin0/tool", toolEnvironmentVariables, toolPathElements, Map.of())));
+        }
+
+        return allToolInfos;
+    }
+
+    static String createJson(int tools, int pathElements, int environmentVariables) {
+        return ToolInfoParser.getGson().toJson(create(tools, pathElements, environmentVariables));
+    }
+
+}
@@ -0,0 +1,53 @@
+package io.jenkins.plugins.projectenv.cleanup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReapTemporaryDirectoriesCallableTest {
+
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    private File workspaceRootDirectory;
+
+    @Test
+    void testReapsOnlyOldStepDirectories() throws Exception {
+        File leftover = createTemporaryDirectory("job@tmp/withProjectEnv0000aaaa", 2 * MAX_AGE);
+        File nestedLeftover = createTemporaryDirectory("folder/job@tmp/withProjectEnv0000bbbb", 2 * MAX_AGE);
+        File recent = createTemporaryDirectory("job@tmp/withProjectEnv0000dddd", 0);
+        File foreign = createTemporaryDirectory("job@tmp/durable-0000eeee", 2 * MAX_AGE);
+
+        ReapTemporaryDirectoriesCallable.Result result = new ReapTemporaryDirectoriesCallable(MAX_AGE).invoke(workspaceRootDirectory, null);
+
+        assertThat(result.deletedDirectories()).isEqualTo(2);
+        assertThat(result.reclaimedBytes()).isEqualTo(2 * "settings".length());
+        assertThat(leftover).doesNotExist();
+        assertThat(nestedLeftover).doesNotExist();
+        assertThat(recent).exists();
+        assertThat(foreign).exists();
+    }
+
+    @Test
+    void testIgnoresMissingWorkspaceRootDirectory() throws Exception {
+        ReapTemporaryDirectoriesCallable.Result result = new ReapTemporaryDirectoriesCallable(MAX_AGE).invoke(new File(workspaceRootDirectory, "missing"), null);
+
+        assertThat(result.deletedDirectories()).isZero();
+    }
+
+    private File createTemporaryDirectory(String path, long ageMillis) throws Exception {
+        File directory = new File(workspaceRootDirectory, path);
+        Files.createDirectories(directory.toPath());
+        Files.writeString(new File(directory, "settings.xml").toPath(), "settings", StandardCharsets.UTF_8);
+        assertThat(directory.setLastModified(System.currentTimeMillis() - ageMillis)).isTrue();
+
+        return directory;
+    }
+
+}
@@ -0,0 +1,230 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hudson.Util;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Timeout(30)
+class ArchiveDownloadTest {
+
+    private static final DownloadOptions OPTIONS = new DownloadOptions(3, 1, 5_000);
+
+    private final byte[] archive = new byte[64 * 1024];
+    private final Queue<Response> responses = new ConcurrentLinkedQueue<>();
+    private final List<String> rangeHeaders = new CopyOnWriteArrayList<>();
+    private final AtomicInteger resets = new AtomicInteger();
+
+    private ExecutorService executor;
+    private HttpServer server;
+    private String archiveUrl;
+    private String checksum;
+
+    @FunctionalInterface
+    private interface Response {
+
+        void send(HttpExchange exchange, long offset) throws IOException;
+
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new Random(42).nextBytes(archive);
+        checksum = Util.toHexString(MessageDigest.getInstance("SHA-256").digest(archive));
+
+        // a stalled transfer must not block the requests resuming it
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/cli.tar.gz", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            rangeHeaders.add(String.valueOf(range));
+            long offset = range != null ? Long.parseLong(range.replaceAll("bytes=(\\d+)-", "$1")) : 0;
+
+            Response response = responses.poll();
+            (response != null ? response : this::sendRange).send(exchange, offset);
+        });
+        server.start();
+
+        archiveUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/cli.tar.gz";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testDownloadIsVerifiedAgainstPublishedChecksum() throws Exception {
+        publishChecksum(checksum + "  cli.tar.gz\n");
+
+        assertThat(download()).isEqualTo(archive);
+        assertThat(rangeHeaders).containsExactly("null");
+    }
+
+    @Test
+    void testTruncatedTransferIsResumed() throws Exception {
+        publishChecksum(checksum);
+        responses.add(this::sendTruncated);
+
+        assertThat(download()).isEqualTo(archive);
+        assertThat(rangeHeaders).containsExactly("null", "bytes=20000-");
+        assertThat(resets).hasValue(0);
+    }
+
+    @Test
+    void testTruncatedTransferIsResumedWithoutRangeSupport() throws Exception {
+        publishChecksum(checksum);
+        responses.add(this::sendTruncated);
+        responses.add((exchange, offset) -> sendRange(exchange, 0));
+
+        assertThat(download()).isEqualTo(archive);
+        assertThat(rangeHeaders).containsExactly("null", "bytes=20000-");
+        assertThat(resets).hasValue(0);
+    }
+
+    @Test
+    void testStalledTransferIsResumedAfterTimeout() throws Exception {
+        publishChecksum(checksum);
+        responses.add(this::sendStalled);
+
+        assertThat(download(new DownloadOptions(3, 1, 500))).isEqualTo(archive);
+        assertThat(rangeHeaders).containsExactly("null", "bytes=20000-");
+        assertThat(resets).hasValue(0);
+    }
+
+    @Test
+    void testCorruptedTransferIsRetried() throws Exception {
+        publishChecksum(checksum);
+        responses.add(this::sendCorrupted);
+
+        assertThat(download()).isEqualTo(archive);
+        assertThat(resets).hasValue(1);
+    }
+
+    @Test
+    void testPersistentlyCorruptedTransferFails() {
+        publishChecksum(checksum);
+        for (int i = 0; i < OPTIONS.maxAttempts(); i++) {
+            responses.add(this::sendCorrupted);
+        }
+
+        assertThatThrownBy(this::download)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum mismatch");
+        assertThat(resets).hasValue(OPTIONS.maxAttempts() - 1);
+    }
+
+    @Test
+    void testDownloadWithoutPublishedChecksumIsNotVerified() throws Exception {
+        responses.add(this::sendCorrupted);
+
+        assertThat(download()).isNotEqualTo(archive).hasSameSizeAs(archive);
+        assertThat(resets).hasValue(0);
+    }
+
+    @Test
+    void testMissingArchiveIsNotRetried() {
+        responses.add((exchange, offset) -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+
+        assertThatThrownBy(this::download).isInstanceOf(FileNotFoundException.class);
+        assertThat(rangeHeaders).hasSize(1);
+    }
+
+    private byte[] download() throws Exception {
+        return download(OPTIONS);
+    }
+
+    private byte[] download(DownloadOptions options) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ArchiveDownload download = new ArchiveDownload(archiveUrl, URL::openConnection, options);
+        long downloadedBytes = download.download(inputStream -> inputStream.transferTo(content), () -> {
+            resets.incrementAndGet();
+            content.reset();
+        });
+
+        assertThat(downloadedBytes).isEqualTo(archive.length);
+        return content.toByteArray();
+    }
+
+    private void publishChecksum(String content) {
+        server.createContext("/cli.tar.gz" + ArchiveDownload.CHECKSUM_FILE_EXTENSION, exchange -> {
+            byte[] body = content.getBytes(StandardCharsets.US_ASCII);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+    }
+
+    private void sendRange(HttpExchange exchange, long offset) throws IOException {
+        if (offset > 0) {
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + offset + "-" + (archive.length - 1) + "/" + archive.length);
+        }
+        exchange.sendResponseHeaders(offset > 0 ? 206 : 200, archive.length - offset);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(archive, (int) offset, (int) (archive.length - offset));
+        }
+    }
+
+    private void sendTruncated(HttpExchange exchange, long offset) throws IOException {
+        exchange.sendResponseHeaders(200, archive.length);
+        OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(archive, 0, 20000);
+        outputStream.flush();
+        // closing the exchange before the announced length has been sent drops the connection
+        exchange.close();
+    }
+
+    private void sendStalled(HttpExchange exchange, long offset) throws IOException {
+        exchange.sendResponseHeaders(200, archive.length);
+        OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(archive, 0, 20000);
+        outputStream.flush();
+        try {
+            // stalls past the read timeout of the client, which gives up on the transfer in the meantime
+            Thread.sleep(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.close();
+    }
+
+    private void sendCorrupted(HttpExchange exchange, long offset) throws IOException {
+        byte[] corrupted = archive.clone();
+        corrupted[corrupted.length / 2] ^= 0x7f;
+        exchange.sendResponseHeaders(200, corrupted.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(corrupted);
+        }
+    }
+
+}
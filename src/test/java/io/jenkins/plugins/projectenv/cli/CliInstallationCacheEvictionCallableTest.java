@@ -0,0 +1,102 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CliInstallationCacheEvictionCallableTest {
+
+    @TempDir
+    private File agentRootDirectory;
+
+    @Test
+    void testEvictionSkipsInstallationsLockedByBuilds() throws Exception {
+        File cacheDirectory = new File(agentRootDirectory, CliInstallationCache.CACHE_DIRECTORY_NAME);
+        File lockedInstallation = createInstallation(cacheDirectory, "1.0.0-linux-amd64", 3000);
+        File unlockedInstallation = createInstallation(cacheDirectory, "1.1.0-linux-amd64", 2000);
+        createInstallation(cacheDirectory, "1.2.0-linux-amd64", 1000);
+
+        long reclaimedBytes;
+        try (InstallLock ignored = InstallLocks.tryAcquireLocally(agentRootDirectory, CliInstallationCache.LOCK_KEY_PREFIX + lockedInstallation.getName())) {
+            reclaimedBytes = new CliInstallationCacheEvictionCallable(250, "1.2.0-linux-amd64").invoke(cacheDirectory, null);
+        }
+
+        // the least recently used installation is locked, so the next one is evicted instead
+        assertThat(reclaimedBytes).isEqualTo(100);
+        assertThat(lockedInstallation).exists();
+        assertThat(unlockedInstallation).doesNotExist();
+    }
+
+    @Test
+    void testEvictionSkipsInstallationsInUse() throws Exception {
+        File cacheDirectory = new File(agentRootDirectory, CliInstallationCache.CACHE_DIRECTORY_NAME);
+        File usedInstallation = createInstallation(cacheDirectory, "1.0.0-linux-amd64", 3000);
+        File unusedInstallation = createInstallation(cacheDirectory, "1.1.0-linux-amd64", 2000);
+        createInstallation(cacheDirectory, "1.2.0-linux-amd64", 1000);
+
+        new CliInstallationUseCallable("step-1", true).invoke(usedInstallation, null);
+        // the body of the step might run longer than the other installations are used
+        File lastUsedMarker = new File(usedInstallation, CliInstallationCache.LAST_USED_MARKER_FILE_NAME);
+        assertThat(lastUsedMarker.lastModified()).isGreaterThan(System.currentTimeMillis() - 1000);
+        assertThat(lastUsedMarker.setLastModified(System.currentTimeMillis() - 3000)).isTrue();
+
+        long reclaimedBytes = new CliInstallationCacheEvictionCallable(250, "1.2.0-linux-amd64").invoke(cacheDirectory, null);
+
+        assertThat(reclaimedBytes).isEqualTo(100);
+        assertThat(usedInstallation).exists();
+        assertThat(unusedInstallation).doesNotExist();
+
+        new CliInstallationUseCallable("step-1", false).invoke(usedInstallation, null);
+
+        assertThat(new File(usedInstallation, CliInstallationCache.USERS_DIRECTORY_NAME)).isEmptyDirectory();
+    }
+
+    @Test
+    void testEvictionIgnoresStaleUsers() throws Exception {
+        File cacheDirectory = new File(agentRootDirectory, CliInstallationCache.CACHE_DIRECTORY_NAME);
+        File installation = createInstallation(cacheDirectory, "1.0.0-linux-amd64", 3000);
+        createInstallation(cacheDirectory, "1.1.0-linux-amd64", 2000);
+        createInstallation(cacheDirectory, "1.2.0-linux-amd64", 1000);
+
+        // left behind by a build which never completed
+        File user = new File(new File(installation, CliInstallationCache.USERS_DIRECTORY_NAME), "step-1");
+        Files.createDirectories(user.getParentFile().toPath());
+        Files.createFile(user.toPath());
+        assertThat(user.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8))).isTrue();
+
+        long reclaimedBytes = new CliInstallationCacheEvictionCallable(250, "1.2.0-linux-amd64").invoke(cacheDirectory, null);
+
+        assertThat(reclaimedBytes).isEqualTo(100);
+        assertThat(installation).doesNotExist();
+    }
+
+    @Test
+    void testRetainingEvictedInstallationFails() {
+        File installation = new File(new File(agentRootDirectory, CliInstallationCache.CACHE_DIRECTORY_NAME), "1.0.0-linux-amd64");
+
+        assertThatThrownBy(() -> new CliInstallationUseCallable("step-1", true).invoke(installation, null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("has been evicted");
+    }
+
+    private static File createInstallation(File cacheDirectory, String cacheKey, long lastUsedAgo) throws Exception {
+        File installation = new File(cacheDirectory, cacheKey);
+        Files.createDirectories(installation.toPath());
+        Files.writeString(new File(installation, "project-env-cli").toPath(), "x".repeat(100), StandardCharsets.UTF_8);
+        File lastUsedMarker = new File(installation, CliInstallationCache.LAST_USED_MARKER_FILE_NAME);
+        Files.createFile(lastUsedMarker.toPath());
+        assertThat(lastUsedMarker.setLastModified(System.currentTimeMillis() - lastUsedAgo)).isTrue();
+
+        return installation;
+    }
+
+}
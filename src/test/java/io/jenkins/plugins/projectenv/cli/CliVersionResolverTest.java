@@ -0,0 +1,135 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CliVersionResolverTest {
+
+    private static final long TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(30);
+    private static final long STALE_PERIOD = TimeUnit.DAYS.toMillis(1);
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicReference<String> latestVersion = new AtomicReference<>("3.4.0");
+    private final AtomicReference<CountDownLatch> requestGate = new AtomicReference<>(new CountDownLatch(0));
+    private final AtomicLong clock = new AtomicLong();
+
+    private HttpServer server;
+    private String latestReleaseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/releases/latest", exchange -> {
+            requestCount.incrementAndGet();
+            try {
+                requestGate.get().await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Location", "https://example.com/releases/tag/v" + latestVersion.get());
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/releases/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+
+        latestReleaseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/releases/latest";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testResolvedVersionIsCachedWithinTimeToLive() {
+        CliVersionResolver resolver = new CliVersionResolver(TIME_TO_LIVE, STALE_PERIOD, clock::get);
+
+        assertThat(resolver.resolveLatestVersion(latestReleaseUrl)).isEqualTo("3.4.0");
+        clock.addAndGet(TIME_TO_LIVE - 1);
+        assertThat(resolver.resolveLatestVersion(latestReleaseUrl)).isEqualTo("3.4.0");
+
+        assertThat(requestCount).hasValue(1);
+        assertThat(resolver.getMissCount()).isEqualTo(1);
+        assertThat(resolver.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Timeout(30)
+    void testConcurrentResolutionsShareSingleRequest() throws Exception {
+        CliVersionResolver resolver = new CliVersionResolver(TIME_TO_LIVE, STALE_PERIOD, clock::get);
+        CountDownLatch gate = new CountDownLatch(1);
+        requestGate.set(gate);
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<String>> resolutions = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                resolutions.add(executor.submit(() -> resolver.resolveLatestVersion(latestReleaseUrl)));
+            }
+            while (requestCount.get() == 0) {
+                Thread.sleep(10);
+            }
+            gate.countDown();
+
+            for (Future<String> resolution : resolutions) {
+                assertThat(resolution.get()).isEqualTo("3.4.0");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(requestCount).hasValue(1);
+    }
+
+    @Test
+    @Timeout(30)
+    void testStaleVersionIsServedWhileRefreshing() throws Exception {
+        CliVersionResolver resolver = new CliVersionResolver(TIME_TO_LIVE, STALE_PERIOD, clock::get);
+        assertThat(resolver.resolveLatestVersion(latestReleaseUrl)).isEqualTo("3.4.0");
+
+        latestVersion.set("3.5.0");
+        clock.addAndGet(TIME_TO_LIVE);
+        assertThat(resolver.resolveLatestVersion(latestReleaseUrl)).isEqualTo("3.4.0");
+        assertThat(resolver.getStaleHitCount()).isEqualTo(1);
+
+        while (!resolver.resolveLatestVersion(latestReleaseUrl).equals("3.5.0")) {
+            Thread.sleep(10);
+        }
+        assertThat(requestCount).hasValue(2);
+    }
+
+    @Test
+    void testUnexpectedResponseIsReported() {
+        CliVersionResolver resolver = new CliVersionResolver(TIME_TO_LIVE, STALE_PERIOD, clock::get);
+
+        assertThatThrownBy(() -> resolver.resolveLatestVersion(latestReleaseUrl.replace("latest", "missing")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("expected redirection, but got 404");
+    }
+
+}
@@ -0,0 +1,82 @@
+package io.jenkins.plugins.projectenv.env;
+
+import hudson.EnvVars;
+import hudson.Platform;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectEnvDeltaTest {
+
+    @Test
+    void testApplyToPrependsPathElementsInDeclarationOrder() {
+        Map<String, List<ToolInfo>> allToolInfos = new LinkedHashMap<>();
+        allToolInfos.put("jdk", List.of(createToolInfo(Map.of("JAVA_HOME", "/tools/jdk"), "/tools/jdk/bin")));
+        allToolInfos.put("maven", List.of(createToolInfo(Map.of("M2_HOME", "/tools/maven"), "/tools/maven/bin", "/tools/maven/lib")));
+
+        ProjectEnvDelta projectEnvDelta = ProjectEnvDelta.create("/cli", allToolInfos);
+
+        EnvVars envVars = new EnvVars("PATH", "/usr/bin", "HOME", "/home/jenkins");
+        envVars.setPlatform(Platform.UNIX);
+        projectEnvDelta.applyTo(envVars);
+
+        assertThat(envVars)
+                .containsEntry("PATH", "/cli:/tools/jdk/bin:/tools/maven/bin:/tools/maven/lib:/usr/bin")
+                .containsEntry("JAVA_HOME", "/tools/jdk")
+                .containsEntry("M2_HOME", "/tools/maven")
+                .containsEntry("HOME", "/home/jenkins");
+    }
+
+    @Test
+    void testMergeKeepsOrderOfConfigurationsAndPrefersFirstOne() {
+        Map<String, ProjectEnvDelta> projectEnvDeltas = new LinkedHashMap<>();
+        projectEnvDeltas.put("backend/project-env.toml", ProjectEnvDelta.create("/cli",
+                Map.of("jdk", List.of(createToolInfo(Map.of("JAVA_HOME", "/backend/jdk"), "/backend/jdk/bin")))));
+        projectEnvDeltas.put("frontend/project-env.toml", ProjectEnvDelta.create("/cli", Map.of(
+                "jdk", List.of(createToolInfo(Map.of("JAVA_HOME", "/frontend/jdk"), "/frontend/jdk/bin")),
+                "nodejs", List.of(createToolInfo(Map.of("NODE_HOME", "/frontend/nodejs"), "/frontend/nodejs/bin")))));
+        List<String> conflicts = new ArrayList<>();
+
+        ProjectEnvDelta projectEnvDelta = ProjectEnvDelta.merge(projectEnvDeltas, conflicts);
+
+        assertThat(projectEnvDelta.getPathElements()).startsWith("/cli", "/backend/jdk/bin").doesNotHaveDuplicates().hasSize(4);
+        assertThat(projectEnvDelta.getEnvironmentVariables())
+                .containsEntry("JAVA_HOME", "/backend/jdk")
+                .containsEntry("NODE_HOME", "/frontend/nodejs");
+        assertThat(conflicts).singleElement().asString()
+                .contains("JAVA_HOME", "frontend/project-env.toml", "using /backend/jdk of backend/project-env.toml");
+    }
+
+    @Test
+    void testApplyToUsesPathSeparatorOfPlatform() {
+        ProjectEnvDelta projectEnvDelta = ProjectEnvDelta.create(null,
+                Map.of("jdk", List.of(createToolInfo(Map.of(), "C:\\tools\\jdk\\bin", "C:\\tools\\jdk\\jre\\bin"))));
+
+        EnvVars envVars = new EnvVars("Path", "C:\\Windows");
+        envVars.setPlatform(Platform.WINDOWS);
+        projectEnvDelta.applyTo(envVars);
+
+        assertThat(envVars.get("PATH")).isEqualTo("C:\\tools\\jdk\\bin;C:\\tools\\jdk\\jre\\bin;C:\\Windows");
+    }
+
+    @Test
+    void testApplyToWithoutExistingPath() {
+        ProjectEnvDelta projectEnvDelta = ProjectEnvDelta.create("/cli", Map.of());
+
+        EnvVars envVars = new EnvVars();
+        projectEnvDelta.applyTo(envVars);
+
+        assertThat(envVars).containsEntry("PATH", "/cli");
+    }
+
+    private ToolInfo createToolInfo(Map<String, String> environmentVariables, String... pathElements) {
+        return new ToolInfo(null, environmentVariables, List.of(pathElements), Map.of());
+    }
+
+}
@@ -0,0 +1,112 @@
+package io.jenkins.plugins.projectenv.lock;
+
+import hudson.FilePath;
+import hudson.util.StreamTaskListener;
+import io.jenkins.plugins.projectenv.metrics.SetupCounter;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstallLocksTest {
+
+    @TempDir
+    private File temporaryDirectory;
+
+    private ByteArrayOutputStream log;
+    private SetupReport setupReport;
+    private InstallLocks installLocks;
+
+    @BeforeEach
+    void setUp() {
+        log = new ByteArrayOutputStream();
+        setupReport = new SetupReport();
+        installLocks = new InstallLocks(new FilePath(temporaryDirectory), new StreamTaskListener(log, StandardCharsets.UTF_8), setupReport);
+    }
+
+    @Test
+    void testUncontendedAcquisitionDoesNotReportWait() throws Exception {
+        try (InstallLock ignored = installLocks.acquire("cli-1.0.0", "Project-Env CLI 1.0.0")) {
+            assertThat(new File(temporaryDirectory, InstallLocks.LOCK_DIRECTORY_NAME + "/cli-1.0.0.lock")).exists();
+        }
+
+        // the lock can be acquired again after it has been released
+        installLocks.acquire("cli-1.0.0", "Project-Env CLI 1.0.0").close();
+
+        assertThat(setupReport.getCounters()).doesNotContainKey(SetupCounter.INSTALL_LOCK_WAITS);
+        assertThat(log.toString(StandardCharsets.UTF_8)).isEmpty();
+    }
+
+    @Test
+    void testContendedAcquisitionWaitsForRelease() throws Exception {
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try (InstallLock ignored = installLocks.acquire("cli-1.0.0", "Project-Env CLI 1.0.0")) {
+                acquired.countDown();
+                release.await();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<InstallLock> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return installLocks.acquire("cli-1.0.0", "Project-Env CLI 1.0.0");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertThat(waiter).isNotDone();
+
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+        waiter.get(10, TimeUnit.SECONDS).close();
+
+        assertThat(setupReport.getCounters()).containsEntry(SetupCounter.INSTALL_LOCK_WAITS, 1L);
+        assertThat(log.toString(StandardCharsets.UTF_8)).contains("for another build installing Project-Env CLI 1.0.0");
+    }
+
+    @Test
+    void testDifferentKeysDoNotWaitForEachOther() throws Exception {
+        // a single thread holding all of them would block forever if any two keys shared a lock
+        List<InstallLock> installLocksHeld = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            installLocksHeld.add(installLocks.acquire("cli-" + i, "Project-Env CLI " + i));
+        }
+        for (InstallLock installLock : installLocksHeld) {
+            installLock.close();
+        }
+
+        assertThat(setupReport.getCounters()).doesNotContainKey(SetupCounter.INSTALL_LOCK_WAITS);
+        assertThat(log.toString(StandardCharsets.UTF_8)).isEmpty();
+        // the locks of released keys are not kept around
+        for (int i = 0; i < 256; i++) {
+            assertThat(InstallLockCoordinator.isInUse("cli-" + i)).isFalse();
+        }
+    }
+
+    @Test
+    void testFailedTryAcquireDoesNotKeepLock() throws Exception {
+        try (InstallLock ignored = installLocks.acquire("cli-1.0.0", "Project-Env CLI 1.0.0")) {
+            assertThat(InstallLocks.tryAcquireLocally(temporaryDirectory, "cli-1.0.0")).isNull();
+            assertThat(InstallLockCoordinator.isInUse("cli-1.0.0")).isTrue();
+        }
+
+        assertThat(InstallLockCoordinator.isInUse("cli-1.0.0")).isFalse();
+    }
+
+}
@@ -0,0 +1,91 @@
+package io.jenkins.plugins.projectenv.memo;
+
+import io.jenkins.plugins.projectenv.prepare.PreparedEnvironment;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RunMemoTest {
+
+    private final RunMemo runMemo = new RunMemo();
+
+    @Test
+    void testLatestCliVersionIsPinned() {
+        AtomicInteger resolutions = new AtomicInteger();
+
+        String first = runMemo.getLatestCliVersion(() -> CompletableFuture.completedFuture("3.0." + resolutions.incrementAndGet())).join();
+        String second = runMemo.getLatestCliVersion(() -> CompletableFuture.completedFuture("3.0." + resolutions.incrementAndGet())).join();
+
+        assertThat(first).isEqualTo("3.0.1");
+        assertThat(second).isEqualTo("3.0.1");
+        assertThat(resolutions).hasValue(1);
+    }
+
+    @Test
+    void testFailedCliVersionResolutionIsNotPinned() {
+        CompletableFuture<String> failed = runMemo.getLatestCliVersion(() -> CompletableFuture.failedFuture(new IllegalStateException("offline")));
+        String resolved = runMemo.getLatestCliVersion(() -> CompletableFuture.completedFuture("3.0.1")).join();
+
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(resolved).isEqualTo("3.0.1");
+    }
+
+    @Test
+    void testConcurrentPreparationsAreCoalesced() {
+        AtomicInteger preparations = new AtomicInteger();
+        CompletableFuture<MemoizedEnvironment> inFlight = new CompletableFuture<>();
+
+        CompletableFuture<MemoizedEnvironment> first = runMemo.getEnvironment("key", this::valid, () -> {
+            preparations.incrementAndGet();
+            return inFlight;
+        });
+        CompletableFuture<MemoizedEnvironment> second = runMemo.getEnvironment("key", this::valid, () -> {
+            preparations.incrementAndGet();
+            return CompletableFuture.completedFuture(createEnvironment("other"));
+        });
+
+        assertThat(second).isNotDone();
+        inFlight.complete(createEnvironment("digest"));
+
+        assertThat(first.join().configDigest()).isEqualTo("digest");
+        assertThat(second.join().configDigest()).isEqualTo("digest");
+        assertThat(preparations).hasValue(1);
+    }
+
+    @Test
+    void testWaitingStepPreparesOnItsOwnIfPreparationFails() {
+        CompletableFuture<MemoizedEnvironment> inFlight = new CompletableFuture<>();
+
+        CompletableFuture<MemoizedEnvironment> first = runMemo.getEnvironment("key", this::valid, () -> inFlight);
+        CompletableFuture<MemoizedEnvironment> second = runMemo.getEnvironment("key", this::valid,
+                () -> CompletableFuture.completedFuture(createEnvironment("digest")));
+        inFlight.completeExceptionally(new InterruptedException("aborted"));
+
+        assertThat(first).isCompletedExceptionally();
+        assertThat(second.join().configDigest()).isEqualTo("digest");
+    }
+
+    @Test
+    void testInvalidEnvironmentIsPreparedAgain() {
+        runMemo.getEnvironment("key", this::valid, () -> CompletableFuture.completedFuture(createEnvironment("old"))).join();
+
+        MemoizedEnvironment environment = runMemo.getEnvironment("key",
+                memoizedEnvironment -> CompletableFuture.completedFuture(false),
+                () -> CompletableFuture.completedFuture(createEnvironment("new"))).join();
+
+        assertThat(environment.configDigest()).isEqualTo("new");
+    }
+
+    private CompletableFuture<Boolean> valid(MemoizedEnvironment environment) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    private static MemoizedEnvironment createEnvironment(String configDigest) {
+        return new MemoizedEnvironment(configDigest, PreparedEnvironment.builder().toolInfos(Map.of()).build());
+    }
+
+}
@@ -0,0 +1,109 @@
+package io.jenkins.plugins.projectenv.postprocess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "the Maven wrapper is not used on Windows")
+class MavenWrapperCallableTest {
+
+    private static final String ORIGINAL_MAVEN = "#!/bin/sh\necho original maven\n";
+
+    @TempDir
+    private Path binDirectory;
+
+    private File executable;
+    private Path originalExecutable;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executable = binDirectory.resolve("mvn").toFile();
+        originalExecutable = binDirectory.resolve("_mvn");
+        Files.writeString(executable.toPath(), ORIGINAL_MAVEN);
+        Files.setPosixFilePermissions(executable.toPath(), PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    @Test
+    void testWrapperIsInstalled() throws Exception {
+        assertThat(new MavenWrapperCallable().invoke(executable, null)).isTrue();
+
+        assertThat(originalExecutable).hasContent(ORIGINAL_MAVEN);
+        assertThat(Files.readString(executable.toPath()))
+                .contains(MavenWrapperCallable.FINGERPRINT_PREFIX)
+                .contains("-s \"$" + MavenWrapperCallable.USER_SETTINGS_FILE_VAR_NAME + "\"");
+        assertThat(Files.isExecutable(executable.toPath())).isTrue();
+        assertThat(Files.isExecutable(originalExecutable)).isTrue();
+    }
+
+    @Test
+    void testInstalledWrapperIsLeftUntouched() throws Exception {
+        new MavenWrapperCallable().invoke(executable, null);
+        long lastModified = Files.getLastModifiedTime(executable.toPath()).toMillis();
+
+        assertThat(new MavenWrapperCallable().invoke(executable, null)).isFalse();
+
+        assertThat(Files.getLastModifiedTime(executable.toPath()).toMillis()).isEqualTo(lastModified);
+        assertThat(originalExecutable).hasContent(ORIGINAL_MAVEN);
+    }
+
+    @Test
+    void testWrapperPassesUserSettingsFileFromEnvironment() throws Exception {
+        Files.writeString(executable.toPath(), "#!/bin/sh\necho \"$@\"\n");
+        new MavenWrapperCallable().invoke(executable, null);
+
+        assertThat(runWrapper("/settings.xml", "clean", "install")).isEqualTo("-s /settings.xml clean install\n");
+        assertThat(runWrapper(null, "clean", "install")).isEqualTo("clean install\n");
+    }
+
+    @Test
+    void testOutdatedWrapperDoesNotOverwriteOriginalExecutable() throws Exception {
+        Files.writeString(originalExecutable, ORIGINAL_MAVEN);
+        // the wrapper of earlier versions of the plugin, with the user settings file of a single workspace
+        Files.writeString(executable.toPath(), "#!/bin/sh\n" + MavenWrapperCallable.FINGERPRINT_PREFIX + "0123\n"
+                + "\"`dirname \"$0\"`/_`basename \"$0\"`\" -s \"/settings.xml\" $*", StandardCharsets.UTF_8);
+
+        assertThat(new MavenWrapperCallable().invoke(executable, null)).isTrue();
+
+        assertThat(originalExecutable).hasContent(ORIGINAL_MAVEN);
+        assertThat(Files.readString(executable.toPath())).doesNotContain("/settings.xml");
+    }
+
+    @Test
+    void testLegacyWrapperIsUpgraded() throws Exception {
+        Files.writeString(originalExecutable, ORIGINAL_MAVEN);
+        Files.writeString(executable.toPath(), "#!/bin/sh\n\"`dirname \"$0\"`/_`basename \"$0\"`\" -s \"/settings.xml\" $*", StandardCharsets.UTF_8);
+
+        assertThat(new MavenWrapperCallable().invoke(executable, null)).isTrue();
+
+        assertThat(originalExecutable).hasContent(ORIGINAL_MAVEN);
+        assertThat(Files.readString(executable.toPath())).contains(MavenWrapperCallable.FINGERPRINT_PREFIX);
+    }
+
+    private String runWrapper(String userSettingsFile, String... arguments) throws Exception {
+        List<String> command = new ArrayList<>(List.of(executable.getPath()));
+        command.addAll(List.of(arguments));
+        ProcessBuilder processBuilder = new ProcessBuilder(command).redirectErrorStream(true);
+        processBuilder.environment().remove(MavenWrapperCallable.USER_SETTINGS_FILE_VAR_NAME);
+        if (userSettingsFile != null) {
+            processBuilder.environment().put(MavenWrapperCallable.USER_SETTINGS_FILE_VAR_NAME, userSettingsFile);
+        }
+
+        Process process = processBuilder.start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(process.waitFor()).isZero();
+        return output;
+    }
+
+}
@@ -0,0 +1,104 @@
+package io.jenkins.plugins.projectenv.proc;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "uses a POSIX shell")
+class ProcHelperTest {
+
+    private static final int PROCESSES = 24;
+
+    @TempDir
+    private File workingDirectory;
+
+    @Test
+    @Timeout(60)
+    void testStdErrOfManyConcurrentProcessesIsDrained() throws Exception {
+        TaskListener listener = new StreamTaskListener(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+        Launcher launcher = new Launcher.LocalLauncher(listener);
+
+        long initialProcessThreads = countProcessThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(PROCESSES);
+        try {
+            List<Future<ProcResult<String>>> results = new ArrayList<>();
+            for (int i = 0; i < PROCESSES; i++) {
+                // every process writes more than a pipe buffer to stderr and keeps running until all of them did so
+                String command = "yes 'synthetic Project-Env CLI output line' | head -n 20000 1>&2; touch written-" + i
+                        + "; while [ ! -f go ]; do sleep 0.05; done; echo done";
+                results.add(executor.submit(() -> ProcHelper.execute(launcher, new EnvVars(), new FilePath(workingDirectory), listener, "/bin/sh", "-c", command)));
+            }
+
+            while (countWrittenMarkers() < PROCESSES) {
+                Thread.sleep(50);
+            }
+            // a pump per process, plus the thread watching all readers for interrupts
+            assertThat(countProcessThreads() - initialProcessThreads).isLessThanOrEqualTo(PROCESSES + 1);
+            Files.createFile(new File(workingDirectory, "go").toPath());
+
+            for (Future<ProcResult<String>> result : results) {
+                assertThat(result.get().exitCode()).isZero();
+                assertThat(result.get().stdOutput()).isEqualTo("done\n");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void testProcessIsKilledWhenReaderIsInterrupted() throws Exception {
+        TaskListener listener = new StreamTaskListener(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+        Launcher launcher = new Launcher.LocalLauncher(listener);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the process neither writes nor exits, so its reader blocks until the process gets killed
+            Future<ProcResult<String>> result = executor.submit(() -> ProcHelper.execute(launcher, new EnvVars(), new FilePath(workingDirectory), listener,
+                    "/bin/sh", "-c", "touch started; exec sleep 60"));
+            while (!new File(workingDirectory, "started").exists()) {
+                Thread.sleep(50);
+            }
+            result.cancel(true);
+            executor.shutdown();
+
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long countProcessThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(Thread::isAlive)
+                .filter(thread -> thread.getName().startsWith(ProcHelper.class.getSimpleName())
+                        || thread.getName().startsWith(StdErrPump.class.getSimpleName()))
+                .count();
+    }
+
+    private long countWrittenMarkers() {
+        String[] markers = workingDirectory.list((directory, name) -> name.startsWith("written-"));
+        return markers != null ? markers.length : 0;
+    }
+
+}
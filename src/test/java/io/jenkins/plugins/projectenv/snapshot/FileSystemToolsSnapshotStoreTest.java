@@ -0,0 +1,74 @@
+package io.jenkins.plugins.projectenv.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemToolsSnapshotStoreTest {
+
+    @TempDir
+    private File snapshotDirectory;
+
+    @Test
+    void testStoreAndOpen() throws Exception {
+        FileSystemToolsSnapshotStore store = new FileSystemToolsSnapshotStore(snapshotDirectory, Long.MAX_VALUE);
+
+        assertThat(store.contains("jdk21")).isFalse();
+        assertThat(store.open("jdk21")).isNull();
+
+        store.store("jdk21", outputStream -> outputStream.write("jdk21".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(store.contains("jdk21")).isTrue();
+        assertThat(read(store, "jdk21")).isEqualTo("jdk21");
+        assertThat(snapshotDirectory.list()).containsExactly("jdk21" + FileSystemToolsSnapshotStore.SNAPSHOT_FILE_SUFFIX);
+    }
+
+    @Test
+    void testStoreEvictsLeastRecentlyUsedSnapshots() throws Exception {
+        FileSystemToolsSnapshotStore store = new FileSystemToolsSnapshotStore(snapshotDirectory, 20);
+
+        store.store("jdk17", outputStream -> outputStream.write(new byte[10]));
+        store.store("jdk21", outputStream -> outputStream.write(new byte[10]));
+        getSnapshotFile("jdk17").setLastModified(1000);
+        getSnapshotFile("jdk21").setLastModified(2000);
+        // opening a snapshot marks it as used
+        read(store, "jdk17");
+
+        store.store("maven", outputStream -> outputStream.write(new byte[10]));
+
+        assertThat(store.contains("jdk17")).isTrue();
+        assertThat(store.contains("jdk21")).isFalse();
+        assertThat(store.contains("maven")).isTrue();
+    }
+
+    @Test
+    void testFailedStoreLeavesNoSnapshot() {
+        FileSystemToolsSnapshotStore store = new FileSystemToolsSnapshotStore(snapshotDirectory, Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> store.store("jdk21", outputStream -> {
+            outputStream.write(new byte[10]);
+            throw new IOException("agent disconnected");
+        })).hasMessage("agent disconnected");
+
+        assertThat(store.contains("jdk21")).isFalse();
+        assertThat(snapshotDirectory.list()).isEmpty();
+    }
+
+    private File getSnapshotFile(String key) {
+        return new File(snapshotDirectory, key + FileSystemToolsSnapshotStore.SNAPSHOT_FILE_SUFFIX);
+    }
+
+    private static String read(FileSystemToolsSnapshotStore store, String key) throws Exception {
+        try (InputStream inputStream = store.open(key)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.Architecture;
+import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolInfoCacheTest {
+
+    private static final AgentInfo AGENT_INFO = AgentInfo.builder()
+            .operatingSystem(OperatingSystem.LINUX)
+            .architecture(Architecture.AMD64)
+            .lineSeparator("\n")
+            .build();
+
+    @TempDir
+    private File temporaryDirectory;
+
+    private FilePath agentRootDirectory;
+    private FilePath workspace;
+    private ToolInfoCache toolInfoCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        workspace = new FilePath(new File(temporaryDirectory, "workspace"));
+        workspace.child(".tools/jdk/bin/java").write("java", "UTF-8");
+
+        agentRootDirectory = new FilePath(new File(temporaryDirectory, "agent"));
+        toolInfoCache = new ToolInfoCache(agentRootDirectory, workspace);
+    }
+
+    @Test
+    void testLookupReturnsStoredToolInfos() throws Exception {
+        Map<String, List<ToolInfo>> toolInfos = createToolInfos();
+        String key = computeKey("[jdk]");
+
+        toolInfoCache.store(key, toolInfos);
+
+        assertThat(toolInfoCache.lookup(key)).isEqualTo(toolInfos);
+        assertThat(toolInfoCache.lookup(computeKey("[maven]"))).isNull();
+    }
+
+    @Test
+    void testLookupIgnoresEntryOfModifiedTools() throws Exception {
+        String key = computeKey("[jdk]");
+        toolInfoCache.store(key, createToolInfos());
+
+        workspace.child(".tools/jdk/bin/java").touch(System.currentTimeMillis() + 10_000);
+
+        assertThat(toolInfoCache.lookup(key)).isNull();
+    }
+
+    @Test
+    void testStoreIgnoresToolInfosReferencingMissingFiles() throws Exception {
+        String key = computeKey("[jdk]");
+        toolInfoCache.store(key, Map.of("jdk", List.of(new ToolInfo(".tools/missing/bin/java", Map.of(), List.of(), Map.of()))));
+
+        assertThat(toolInfoCache.lookup(key)).isNull();
+    }
+
+    @Test
+    void testEvictDeletesEntriesNotUsedWithinMaxAge() throws Exception {
+        long maxAge = TimeUnit.DAYS.toMillis(14);
+        String unusedKey = computeKey("[jdk]");
+        String usedKey = computeKey("[jdk]\nversion = 21");
+        toolInfoCache.store(unusedKey, createToolInfos());
+        toolInfoCache.store(usedKey, createToolInfos());
+        getEntryFile(unusedKey).touch(System.currentTimeMillis() - 2 * maxAge);
+        getEntryFile(usedKey).touch(System.currentTimeMillis() - 2 * maxAge);
+
+        // a lookup marks the entry as used
+        assertThat(toolInfoCache.lookup(usedKey)).isNotNull();
+
+        assertThat(ToolInfoCache.evict(agentRootDirectory, maxAge)).isEqualTo(1);
+        assertThat(toolInfoCache.lookup(unusedKey)).isNull();
+        assertThat(toolInfoCache.lookup(usedKey)).isNotNull();
+    }
+
+    private FilePath getEntryFile(String key) {
+        return agentRootDirectory.child(ToolInfoCache.CACHE_DIRECTORY_NAME).child(key + ".json");
+    }
+
+    private String computeKey(String configFileContent) {
+        return ToolInfoCache.computeKey("project-env.toml", configFileContent, "project-env-cli@1", AGENT_INFO, workspace);
+    }
+
+    private static Map<String, List<ToolInfo>> createToolInfos() {
+        return Map.of("jdk", List.of(new ToolInfo(
+                ".tools/jdk/bin/java",
+                Map.of("JAVA_HOME", ".tools/jdk"),
+                List.of(".tools/jdk/bin"),
+                Map.of())));
+    }
+
+}
@@ -0,0 +1,93 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.Architecture;
+import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolInfoIndexTest {
+
+    private static final AgentInfo AGENT_INFO = AgentInfo.builder()
+            .operatingSystem(OperatingSystem.LINUX)
+            .architecture(Architecture.AMD64)
+            .lineSeparator("\n")
+            .build();
+
+    private static final String CONFIG = """
+            tools_directory = ".tools"
+
+            [jdk]
+            distribution_version = "21"
+
+            [nodejs]
+            version = "20.11.0"
+            """;
+
+    private static final List<ToolInfo> JDK_TOOL_INFOS = List.of(new ToolInfo(".tools/jdk/bin/java", Map.of(), List.of(".tools/jdk/bin"), Map.of()));
+    private static final List<ToolInfo> NODEJS_TOOL_INFOS = List.of(new ToolInfo(".tools/nodejs/bin/node", Map.of(), List.of(".tools/nodejs/bin"), Map.of()));
+
+    @TempDir
+    private File temporaryDirectory;
+
+    private FilePath workspace;
+    private ToolInfoCache toolInfoCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        workspace = new FilePath(new File(temporaryDirectory, "workspace"));
+        workspace.child(".tools/jdk/bin/java").write("java", "UTF-8");
+        workspace.child(".tools/nodejs/bin/node").write("node", "UTF-8");
+
+        toolInfoCache = new ToolInfoCache(new FilePath(new File(temporaryDirectory, "agent")), workspace);
+    }
+
+    @Test
+    void testUnchangedToolsAreReusedAfterChangeOfOtherTool() throws Exception {
+        createIndex(CONFIG).store(Map.of("jdk", JDK_TOOL_INFOS, "nodejs", NODEJS_TOOL_INFOS));
+
+        ToolInfoIndex toolInfoIndex = createIndex(CONFIG.replace("20.11.0", "22.1.0"));
+
+        assertThat(toolInfoIndex.lookupUnchangedTools()).containsOnlyKeys("jdk");
+    }
+
+    @Test
+    void testChangeOfTopLevelSettingsInvalidatesAllTools() throws Exception {
+        createIndex(CONFIG).store(Map.of("jdk", JDK_TOOL_INFOS, "nodejs", NODEJS_TOOL_INFOS));
+
+        ToolInfoIndex toolInfoIndex = createIndex(CONFIG.replace(".tools", ".other-tools"));
+
+        assertThat(toolInfoIndex.lookupUnchangedTools()).isEmpty();
+    }
+
+    @Test
+    void testModifiedToolIsNotReused() throws Exception {
+        createIndex(CONFIG).store(Map.of("jdk", JDK_TOOL_INFOS, "nodejs", NODEJS_TOOL_INFOS));
+
+        workspace.child(".tools/jdk/bin/java").touch(System.currentTimeMillis() + 10_000);
+
+        assertThat(createIndex(CONFIG).lookupUnchangedTools()).containsOnlyKeys("nodejs");
+    }
+
+    @Test
+    void testMergeFollowsConfigurationOrder() {
+        ToolInfoIndex toolInfoIndex = createIndex(CONFIG);
+
+        Map<String, List<ToolInfo>> mergedToolInfos = toolInfoIndex.merge(Map.of("jdk", JDK_TOOL_INFOS), Map.of("nodejs", NODEJS_TOOL_INFOS));
+
+        assertThat(mergedToolInfos).containsExactly(Map.entry("jdk", JDK_TOOL_INFOS), Map.entry("nodejs", NODEJS_TOOL_INFOS));
+    }
+
+    private ToolInfoIndex createIndex(String configContent) {
+        return new ToolInfoIndex(toolInfoCache, "project-env.toml", configContent, "project-env-cli@1", AGENT_INFO, workspace);
+    }
+
+}
@@ -0,0 +1,44 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ToolInfoParserTest {
+
+    @Test
+    void testFromJsonStream() {
+        String rawToolInfos = """
+                {"jdk": [{"primaryExecutable": "/tools/jdk/bin/java", "environmentVariables": {"JAVA_HOME": "/tools/jdk"},
+                "pathElements": ["/tools/jdk/bin"], "unhandledProjectResources": {}}]}
+                """;
+
+        Map<String, List<ToolInfo>> toolInfos = ToolInfoParser.fromJson(new ByteArrayInputStream(rawToolInfos.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(toolInfos).containsOnlyKeys("jdk");
+        assertThat(toolInfos.get("jdk")).containsExactly(new ToolInfo(
+                "/tools/jdk/bin/java",
+                Map.of("JAVA_HOME", "/tools/jdk"),
+                List.of("/tools/jdk/bin"),
+                Map.of()));
+    }
+
+    @Test
+    void testFromJsonReportsPositionOfParseError() {
+        String rawToolInfos = """
+                {"jdk": [{"primaryExecutable": "/tools/jdk/bin/java", "pathElements": {}}]}
+                """;
+
+        assertThatThrownBy(() -> ToolInfoParser.fromJson(rawToolInfos))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("failed to parse tool infos")
+                .hasMessageContaining("$.jdk[0].pathElements");
+    }
+
+}
@@ -0,0 +1,106 @@
+package io.jenkins.plugins.projectenv.tools;
+
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.Architecture;
+import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectEnvConfigFilesTest {
+
+    private static final AgentInfo AGENT_INFO = AgentInfo.builder()
+            .operatingSystem(OperatingSystem.LINUX)
+            .architecture(Architecture.AMD64)
+            .lineSeparator("\n")
+            .build();
+
+    private static final String CONFIG = """
+            tools_directory = ".tools"
+
+            [jdk]
+            distribution = "Temurin"
+            distribution_version = "21"
+            """;
+
+    private static final String MULTI_TOOL_CONFIG = """
+            tools_directory = ".tools"
+
+            [jdk]
+            distribution = "Temurin"
+            distribution_version = "21"
+
+            [maven]
+            version = "3.9.6"
+
+            [maven.settings] # nested table
+            user_settings_file = "settings.xml"
+
+            [nodejs]
+            version = "20.11.0"
+
+            [[generic]]
+            download_urls = [
+                [ "https://example.com/a" ],
+            ]
+            """;
+
+    @Test
+    void testFindToolsDirectory() {
+        assertThat(ProjectEnvConfigFiles.findToolsDirectory(CONFIG)).isEqualTo(".tools");
+        assertThat(ProjectEnvConfigFiles.findToolsDirectory("[jdk]\n")).isNull();
+    }
+
+    @Test
+    void testWithToolsDirectoryReplacesExistingSetting() {
+        String config = ProjectEnvConfigFiles.withToolsDirectory(CONFIG, "C:\\agent\\project-env-tools\\abc");
+
+        assertThat(config).startsWith("tools_directory = 'C:\\agent\\project-env-tools\\abc'\n\n[jdk]");
+        assertThat(ProjectEnvConfigFiles.findToolsDirectory(config)).isEqualTo("C:\\agent\\project-env-tools\\abc");
+    }
+
+    @Test
+    void testWithToolsDirectoryAddsMissingSettingBeforeTables() {
+        String config = ProjectEnvConfigFiles.withToolsDirectory("[jdk]\n", "/agent/project-env-tools/abc");
+
+        assertThat(config).isEqualTo("tools_directory = '/agent/project-env-tools/abc'\n[jdk]\n");
+    }
+
+    @Test
+    void testToolsKeyIgnoresToolsDirectory() {
+        assertThat(ProjectEnvConfigFiles.computeToolsKey(CONFIG, AGENT_INFO))
+                .isEqualTo(ProjectEnvConfigFiles.computeToolsKey(CONFIG.replace(".tools", "/opt/tools"), AGENT_INFO))
+                .isNotEqualTo(ProjectEnvConfigFiles.computeToolsKey(CONFIG.replace("21", "17"), AGENT_INFO))
+                .isNotEqualTo(ProjectEnvConfigFiles.computeToolsKey(CONFIG, AgentInfo.builder()
+                        .operatingSystem(OperatingSystem.MACOS)
+                        .architecture(Architecture.AARCH64)
+                        .lineSeparator("\n")
+                        .build()));
+    }
+
+    @Test
+    void testFindTools() {
+        assertThat(ProjectEnvConfigFiles.findTools(MULTI_TOOL_CONFIG)).containsExactly("jdk", "maven", "nodejs", "generic");
+    }
+
+    @Test
+    void testWithToolsKeepsTopLevelSettingsAndSelectedTables() {
+        String config = ProjectEnvConfigFiles.withTools(MULTI_TOOL_CONFIG, List.of("jdk", "generic"));
+
+        assertThat(config).isEqualTo("""
+                tools_directory = ".tools"
+
+                [jdk]
+                distribution = "Temurin"
+                distribution_version = "21"
+
+                [[generic]]
+                download_urls = [
+                    [ "https://example.com/a" ],
+                ]
+                """);
+    }
+
+}
@@ -0,0 +1,150 @@
+package io.jenkins.plugins.projectenv.tools;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.projectenv.lock.InstallLock;
+import io.jenkins.plugins.projectenv.lock.InstallLocks;
+import io.jenkins.plugins.projectenv.metrics.SetupReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "creating symbolic links requires special privileges")
+class SharedToolsStoreTest {
+
+    @TempDir
+    private File temporaryDirectory;
+
+    private FilePath agentRootDirectory;
+    private InstallLocks installLocks;
+
+    @BeforeEach
+    void setUp() {
+        agentRootDirectory = new FilePath(new File(temporaryDirectory, "agent"));
+        installLocks = new InstallLocks(agentRootDirectory, TaskListener.NULL, new SetupReport());
+    }
+
+    @Test
+    void testLinkSharesEntryBetweenWorkspaces() throws Exception {
+        SharedToolsStore store = new SharedToolsStore(agentRootDirectory, Long.MAX_VALUE);
+        FilePath entry = store.getEntry("jdk21");
+
+        FilePath firstWorkspace = workspace("job");
+        FilePath secondWorkspace = workspace("job@2");
+        FilePath firstWorkspaceTools = firstWorkspace.child(".tools");
+        FilePath secondWorkspaceTools = secondWorkspace.child(".tools");
+        // tools installed before the shared store was used are replaced by the link
+        firstWorkspaceTools.child("jdk/bin/java").write("java", "UTF-8");
+
+        store.link(firstWorkspace, firstWorkspace, ".tools", entry, installLocks);
+        store.link(secondWorkspace, secondWorkspace, ".tools", entry, installLocks);
+        installTools(entry, 10);
+
+        assertThat(firstWorkspaceTools.readLink()).isEqualTo(entry.getRemote());
+        assertThat(secondWorkspaceTools.child("jdk/bin/java").exists()).isTrue();
+        assertThat(firstWorkspaceTools.child("jdk/bin/java").readToString()).hasSize(10);
+    }
+
+    @Test
+    void testLinkRefusesToolsDirectoryOutsideOfWorkspace() throws Exception {
+        SharedToolsStore store = new SharedToolsStore(agentRootDirectory, Long.MAX_VALUE);
+        FilePath workspace = workspace("job");
+        FilePath otherDirectory = new FilePath(new File(temporaryDirectory, "other"));
+        otherDirectory.child("file").write("content", "UTF-8");
+
+        assertThatThrownBy(() -> store.link(workspace, workspace, otherDirectory.getRemote(), store.getEntry("jdk21"), installLocks))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("inside the workspace");
+        assertThatThrownBy(() -> store.link(workspace, workspace, "../other", store.getEntry("jdk21"), installLocks))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("inside the workspace");
+        assertThat(otherDirectory.child("file").exists()).isTrue();
+    }
+
+    @Test
+    void testLinkRefusesToolsDirectoryContainingConfiguration() throws Exception {
+        SharedToolsStore store = new SharedToolsStore(agentRootDirectory, Long.MAX_VALUE);
+        FilePath workspace = workspace("job");
+        FilePath configDirectory = workspace.child("etc");
+        configDirectory.child("project-env.toml").write("tools_directory = \".\"", "UTF-8");
+
+        assertThatThrownBy(() -> store.link(workspace, workspace, ".", store.getEntry("jdk21"), installLocks))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("inside the workspace");
+        assertThatThrownBy(() -> store.link(workspace, configDirectory, ".", store.getEntry("jdk21"), installLocks))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("must not contain the Project-Env configuration");
+        assertThat(configDirectory.child("project-env.toml").exists()).isTrue();
+    }
+
+    @Test
+    void testCollectGarbageDeletesUnreferencedEntriesOverQuota() throws Exception {
+        SharedToolsStore store = new SharedToolsStore(agentRootDirectory, 1500);
+
+        FilePath referencedEntry = store.getEntry("referenced");
+        FilePath workspace = workspace("job");
+        store.link(workspace, workspace, ".tools", referencedEntry, installLocks);
+        installTools(referencedEntry, 1000);
+
+        FilePath unreferencedEntry = store.getEntry("unreferenced");
+        FilePath removedWorkspace = workspace("removed-job");
+        store.link(removedWorkspace, removedWorkspace, ".tools", unreferencedEntry, installLocks);
+        installTools(unreferencedEntry, 1000);
+        removedWorkspace.deleteRecursive();
+
+        long reclaimedBytes = store.collectGarbage();
+
+        assertThat(reclaimedBytes).isEqualTo(1000);
+        assertThat(unreferencedEntry.exists()).isFalse();
+        assertThat(referencedEntry.exists()).isTrue();
+    }
+
+    @Test
+    void testCollectGarbageKeepsEntriesWhileTheyAreLinked() throws Exception {
+        SharedToolsStore store = new SharedToolsStore(agentRootDirectory, 0);
+        FilePath entry = store.getEntry("jdk21");
+        installTools(entry, 1000);
+
+        // a build linking a workspace to the entry holds its install lock before the reference and the link exist
+        try (InstallLock ignored = InstallLocks.tryAcquireLocally(new File(agentRootDirectory.getRemote()), InstallLocks.getToolsDirectoryKey(entry))) {
+            assertThat(store.collectGarbage()).isZero();
+        }
+        assertThat(entry.exists()).isTrue();
+
+        FilePath workspace = workspace("job");
+        store.link(workspace, workspace, ".tools", entry, installLocks);
+
+        assertThat(store.collectGarbage()).isZero();
+        assertThat(workspace.child(".tools/jdk/bin/java").exists()).isTrue();
+    }
+
+    @Test
+    void testCollectGarbageKeepsEntriesWithinQuota() throws Exception {
+        SharedToolsStore store = new SharedToolsStore(agentRootDirectory, 5000);
+
+        FilePath unreferencedEntry = store.getEntry("unreferenced");
+        installTools(unreferencedEntry, 1000);
+
+        assertThat(store.collectGarbage()).isZero();
+        assertThat(unreferencedEntry.exists()).isTrue();
+    }
+
+    private FilePath workspace(String workspaceName) {
+        return new FilePath(new File(temporaryDirectory, "workspace/" + workspaceName));
+    }
+
+    /**
+     * Stands in for the Project-Env CLI downloading a tool into the tools directory.
+     */
+    private static void installTools(FilePath toolsDirectory, int size) throws Exception {
+        toolsDirectory.child("jdk/bin/java").write("x".repeat(size), "UTF-8");
+    }
+
+}